@@ -0,0 +1,156 @@
+package com.uber.egypt.client;
+
+import com.google.gson.JsonObject;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects the documents of single calls into batches. A batch is sent once it is full, or once
+ * its first document waited for the linger time, whichever comes first.
+ * <p>
+ * At most a fixed number of batches are in flight at once. Documents arriving meanwhile keep
+ * filling the next batch, which is sent as soon as a request completes, so that under load the
+ * batches grow rather than the number of requests.
+ */
+class DocumentBatcher {
+    private final int maxBatchSize;
+    private final Duration linger;
+    private final int maxInFlight;
+    private final ScheduledExecutorService scheduler;
+    private final Function<List<PendingDocument>, CompletableFuture<?>> sender;
+    private final Object lock = new Object();
+    private final Deque<PendingDocument> pending = new ArrayDeque<>();
+    private ScheduledFuture<?> lingerTimer;
+    private int inFlight;
+    private int outstanding;
+    private boolean closing;
+
+    DocumentBatcher(
+            int maxBatchSize,
+            Duration linger,
+            int maxInFlight,
+            ScheduledExecutorService scheduler,
+            Function<List<PendingDocument>, CompletableFuture<?>> sender
+    ) {
+        this.maxBatchSize = maxBatchSize;
+        this.linger = linger;
+        this.maxInFlight = maxInFlight;
+        this.scheduler = scheduler;
+        this.sender = sender;
+    }
+
+    void add(List<PendingDocument> documents) {
+        synchronized (lock) {
+            if (closing) {
+                throw new IllegalStateException("The signing client is closed");
+            }
+            outstanding += documents.size();
+            for (var document : documents) {
+                document.result.whenComplete((signed, failure) -> completed());
+                pending.add(document);
+            }
+            dispatch(false);
+        }
+    }
+
+    /**
+     * Queues a document again that failed in an earlier batch, also while the client closes.
+     */
+    void retry(PendingDocument document) {
+        synchronized (lock) {
+            pending.add(document);
+            dispatch(false);
+        }
+    }
+
+    /**
+     * Sends the documents still waiting for a batch and waits until every document is signed or
+     * failed, including its retries.
+     */
+    void close() {
+        synchronized (lock) {
+            closing = true;
+            dispatch(true);
+            while (outstanding > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Called with the lock held. A request that completes frees a slot for the documents that
+    // were waiting for it, which have waited long enough by then.
+    private void dispatch(boolean lingerExpired) {
+        while (inFlight < maxInFlight
+                && (pending.size() >= maxBatchSize || !pending.isEmpty() && (lingerExpired || closing))) {
+            List<PendingDocument> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+            while (batch.size() < maxBatchSize && !pending.isEmpty()) {
+                batch.add(pending.poll());
+            }
+            inFlight++;
+            send(batch).whenComplete((result, failure) -> {
+                synchronized (lock) {
+                    inFlight--;
+                    dispatch(true);
+                }
+            });
+        }
+
+        // While every slot is taken, the next completed request sends the pending documents.
+        if (pending.isEmpty() || inFlight >= maxInFlight) {
+            if (lingerTimer != null) {
+                lingerTimer.cancel(false);
+                lingerTimer = null;
+            }
+        } else if (lingerTimer == null) {
+            lingerTimer = scheduler.schedule(this::lingerExpired, linger.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private CompletableFuture<?> send(List<PendingDocument> batch) {
+        try {
+            return sender.apply(batch);
+        } catch (RuntimeException e) {
+            batch.forEach(document -> document.result.completeExceptionally(e));
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void lingerExpired() {
+        synchronized (lock) {
+            lingerTimer = null;
+            dispatch(true);
+        }
+    }
+
+    private void completed() {
+        synchronized (lock) {
+            if (--outstanding == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    static class PendingDocument {
+        final JsonObject document;
+        final CompletableFuture<JsonObject> result = new CompletableFuture<>();
+        int attempts;
+
+        PendingDocument(JsonObject document) {
+            this.document = document;
+        }
+    }
+}
@@ -0,0 +1,432 @@
+package com.uber.egypt.client;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Signs documents on a signing server, for services that sign one document at a time as well as
+ * for exports.
+ * <p>
+ * Documents are not sent one per request: the documents of concurrent {@link #sign} calls are
+ * collected into batches for {@code /sign}, see {@link DocumentBatcher}. Batches are sent gzip
+ * compressed over keep-alive connections that are reused across requests, and at most
+ * {@code maxConcurrentRequests} of them at once.
+ * <p>
+ * A document is only retried if signing it failed in a way another attempt may fix, i.e. the
+ * token or a cluster node failed, or the request failed as a whole. The other documents of its
+ * batch are not sent again. Invalid documents and documents past their deadline fail right away.
+ * <p>
+ * A client is thread safe and meant to be shared, since batching only pays off across callers.
+ */
+public class SigningClient implements AutoCloseable {
+    private static final String DOCUMENTS_KEY = "documents";
+    private static final String SIGNATURES_KEY = "signatures";
+    private static final String ERROR_KEY = "error";
+    private static final String PRIORITY_HEADER = "X-Signing-Priority";
+    private static final String RESPONSE_MODE_HEADER = "X-Response-Mode";
+    private static final String IDENTITY_HEADER = "X-Signing-Identity";
+    private static final String TIMEOUT_HEADER = "X-Signing-Timeout";
+    private static final String GZIP = "gzip";
+    private static final String REQUEST_FAILURE = "REQUEST_FAILURE";
+    private static final Set<String> RETRYABLE_ERROR_TYPES = Set.of("SIGNATURE_FAILURE", "NODE_FAILURE", REQUEST_FAILURE);
+    // The signer answers with DEADLINE_EXCEEDED entries once the deadline passed, which only
+    // arrive if the request itself does not time out first.
+    private static final Duration RESPONSE_GRACE = Duration.ofSeconds(10);
+
+    private final URI signUrl;
+    private final String authorization;
+    private final Priority priority;
+    private final String identity;
+    private final boolean signaturesOnly;
+    private final Duration timeout;
+    private final boolean compression;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final HttpClient http;
+    private final ScheduledExecutorService scheduler;
+    private final DocumentBatcher batcher;
+    private final Gson gson;
+
+    private SigningClient(Builder builder) {
+        this.signUrl = builder.url.resolve("/sign");
+        this.authorization = builder.user == null ? null : "Basic " + Base64.getEncoder().encodeToString(
+                (builder.user + ":" + builder.password).getBytes(StandardCharsets.UTF_8)
+        );
+        this.priority = builder.priority;
+        this.identity = builder.identity;
+        this.signaturesOnly = builder.signaturesOnly;
+        this.timeout = builder.timeout;
+        this.compression = builder.compression;
+        this.maxAttempts = builder.maxAttempts;
+        this.retryBackoff = builder.retryBackoff;
+
+        // The signer serves HTTP/1.1, whose connections the client keeps alive and reuses.
+        var http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(builder.connectTimeout);
+        if (builder.sslContext != null) {
+            http.sslContext(builder.sslContext);
+        }
+        this.http = http.build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "signing-client-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batcher = new DocumentBatcher(
+                builder.maxBatchSize,
+                builder.linger,
+                builder.maxConcurrentRequests,
+                scheduler,
+                this::sendBatch
+        );
+        this.gson = new Gson();
+    }
+
+    public static Builder builder(URI url) {
+        return new Builder(url);
+    }
+
+    /**
+     * Signs a document and completes with the document with its {@code signatures} appended, or
+     * only with its {@code internalID}, if it has one, and {@code signature} if the client asks
+     * for signatures only. Fails with a {@link SigningClientException} if the document
+     * could not be signed.
+     */
+    public CompletableFuture<JsonObject> sign(JsonObject document) {
+        return signAll(List.of(document)).get(0);
+    }
+
+    /**
+     * Signs documents the caller already has at hand, e.g. an export, in full batches right away.
+     * The results are in the order of the documents.
+     */
+    public List<CompletableFuture<JsonObject>> signAll(List<JsonObject> documents) {
+        var pendingDocuments = documents.stream().map(DocumentBatcher.PendingDocument::new).toList();
+        batcher.add(pendingDocuments);
+        return pendingDocuments.stream().map(document -> document.result).toList();
+    }
+
+    /**
+     * Sends the documents still waiting for a batch and waits until every document is signed or
+     * failed.
+     */
+    @Override
+    public void close() {
+        batcher.close();
+        scheduler.shutdown();
+    }
+
+    // The batch is encoded off the caller's thread, which holds the batcher lock.
+    private CompletableFuture<?> sendBatch(List<DocumentBatcher.PendingDocument> batch) {
+        batch.forEach(document -> document.attempts++);
+        return CompletableFuture
+                .supplyAsync(() -> buildRequest(batch))
+                .thenCompose(request -> http.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()))
+                .handle((response, failure) -> {
+                    if (failure != null) {
+                        failBatch(batch, failure instanceof CompletionException ? failure.getCause() : failure);
+                    } else {
+                        completeBatch(batch, response);
+                    }
+                    return null;
+                });
+    }
+
+    private HttpRequest buildRequest(List<DocumentBatcher.PendingDocument> batch) {
+        var request = HttpRequest.newBuilder(signUrl)
+                .header("Content-Type", "text/plain")
+                .header("Accept-Encoding", GZIP)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(encode(batch)));
+        if (compression) {
+            request.header("Content-Encoding", GZIP);
+        }
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        if (priority != null) {
+            request.header(PRIORITY_HEADER, priority.name().toLowerCase());
+        }
+        if (identity != null) {
+            request.header(IDENTITY_HEADER, identity);
+        }
+        if (signaturesOnly) {
+            request.header(RESPONSE_MODE_HEADER, SIGNATURES_KEY);
+        }
+        if (timeout != null) {
+            request.header(TIMEOUT_HEADER, Long.toString(timeout.toMillis()));
+            request.timeout(timeout.plus(RESPONSE_GRACE));
+        }
+        return request.build();
+    }
+
+    // The envelope is written straight through the Base64 encoder and the compressor.
+    private byte[] encode(List<DocumentBatcher.PendingDocument> batch) {
+        JsonArray documents = new JsonArray(batch.size());
+        batch.forEach(document -> documents.add(document.document));
+        JsonObject envelope = new JsonObject();
+        envelope.add(DOCUMENTS_KEY, documents);
+
+        var body = new ByteArrayOutputStream();
+        try (var writer = new OutputStreamWriter(
+                Base64.getEncoder().wrap(compression ? new GZIPOutputStream(body) : body),
+                StandardCharsets.UTF_8
+        )) {
+            gson.toJson(envelope, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return body.toByteArray();
+    }
+
+    private void completeBatch(List<DocumentBatcher.PendingDocument> batch, HttpResponse<byte[]> response) {
+        var status = response.statusCode();
+        if (status != 200) {
+            var message = "The signer answered " + status + ": " + readError(response);
+            // Rejected requests, e.g. with an unknown identity, fail the same way again.
+            var type = status >= 500 || status == 429 ? REQUEST_FAILURE : "REQUEST_REJECTED";
+            batch.forEach(document -> fail(document, type, message));
+            return;
+        }
+
+        JsonArray results;
+        try {
+            results = decode(response).getAsJsonArray(signaturesOnly ? SIGNATURES_KEY : DOCUMENTS_KEY);
+        } catch (RuntimeException | IOException e) {
+            failBatch(batch, e);
+            return;
+        }
+        if (results == null || results.size() != batch.size()) {
+            failBatch(batch, new IllegalStateException("Expected " + batch.size() + " results from the signer"));
+            return;
+        }
+        for (int index = 0; index < batch.size(); index++) {
+            complete(batch.get(index), results.get(index).getAsJsonObject());
+        }
+    }
+
+    private JsonObject decode(HttpResponse<byte[]> response) throws IOException {
+        try (var reader = new InputStreamReader(openBody(response), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, JsonObject.class);
+        }
+    }
+
+    private static String readError(HttpResponse<byte[]> response) {
+        try (var body = openBody(response)) {
+            return new String(body.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "an unreadable body";
+        }
+    }
+
+    private static InputStream openBody(HttpResponse<byte[]> response) throws IOException {
+        InputStream body = new ByteArrayInputStream(response.body());
+        if (response.headers().firstValue("Content-Encoding").filter(GZIP::equalsIgnoreCase).isPresent()) {
+            body = new GZIPInputStream(body);
+        }
+        return body;
+    }
+
+    // A signature of a document without an internalID refers to it by its position in the batch,
+    // which means nothing to the caller and is dropped.
+    private void complete(DocumentBatcher.PendingDocument document, JsonObject result) {
+        JsonElement error = result.get(ERROR_KEY);
+        if (error == null) {
+            if (signaturesOnly) {
+                result.remove("index");
+            }
+            document.result.complete(result);
+            return;
+        }
+        var errorObject = error.getAsJsonObject();
+        fail(document, errorObject.get("type").getAsString(), errorObject.get("message").getAsString());
+    }
+
+    private void failBatch(List<DocumentBatcher.PendingDocument> batch, Throwable failure) {
+        var type = failure instanceof HttpTimeoutException ? "DEADLINE_EXCEEDED" : REQUEST_FAILURE;
+        var message = failure.getMessage() == null ? failure.getClass().getSimpleName() : failure.getMessage();
+        batch.forEach(document -> fail(document, type, message));
+    }
+
+    private void fail(DocumentBatcher.PendingDocument document, String type, String message) {
+        if (!RETRYABLE_ERROR_TYPES.contains(type) || document.attempts >= maxAttempts) {
+            document.result.completeExceptionally(new SigningClientException(type, message));
+            return;
+        }
+        var backoff = retryBackoff.toNanos() << (document.attempts - 1);
+        scheduler.schedule(() -> batcher.retry(document), backoff, TimeUnit.NANOSECONDS);
+    }
+
+    public enum Priority {
+        INTERACTIVE,
+        BULK
+    }
+
+    public static class Builder {
+        private final URI url;
+        private String user;
+        private String password;
+        private SSLContext sslContext;
+        private Priority priority;
+        private String identity;
+        private boolean signaturesOnly;
+        private Duration timeout;
+        private boolean compression = true;
+        private int maxBatchSize = 100;
+        private Duration linger = Duration.ofMillis(5);
+        private int maxConcurrentRequests = 4;
+        private int maxAttempts = 3;
+        private Duration retryBackoff = Duration.ofMillis(200);
+        private Duration connectTimeout = Duration.ofSeconds(10);
+
+        private Builder(URI url) {
+            this.url = url;
+        }
+
+        /**
+         * The Basic authentication user of the signer.
+         */
+        public Builder credentials(String user, String password) {
+            this.user = user;
+            this.password = password;
+            return this;
+        }
+
+        /**
+         * The TLS context trusting the certificate of the signer, if the default one does not.
+         */
+        public Builder sslContext(SSLContext sslContext) {
+            this.sslContext = sslContext;
+            return this;
+        }
+
+        /**
+         * The priority lane of the documents, the signer's default ({@code BULK}) without it.
+         */
+        public Builder priority(Priority priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        /**
+         * The alias of the key the documents are signed with, the signer's default without it.
+         */
+        public Builder identity(String identity) {
+            this.identity = identity;
+            return this;
+        }
+
+        /**
+         * Whether only the signatures are returned instead of the signed documents.
+         */
+        public Builder signaturesOnly(boolean signaturesOnly) {
+            this.signaturesOnly = signaturesOnly;
+            return this;
+        }
+
+        /**
+         * How long a request may take. Documents the signer did not get to by then fail with
+         * {@code DEADLINE_EXCEEDED}. The signer's default applies without it.
+         */
+        public Builder timeout(Duration timeout) {
+            this.timeout = requirePositive(timeout, "timeout");
+            return this;
+        }
+
+        public Builder compression(boolean compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = requirePositive(maxBatchSize, "maxBatchSize");
+            return this;
+        }
+
+        /**
+         * How long the first document of a batch waits for more documents before it is sent.
+         */
+        public Builder linger(Duration linger) {
+            if (linger.isNegative()) {
+                throw new IllegalArgumentException("linger must not be negative");
+            }
+            this.linger = linger;
+            return this;
+        }
+
+        /**
+         * The number of batches in flight at once, and so of the connections to the signer.
+         */
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = requirePositive(maxConcurrentRequests, "maxConcurrentRequests");
+            return this;
+        }
+
+        /**
+         * How often a document is sent at most, including its first attempt.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            this.maxAttempts = requirePositive(maxAttempts, "maxAttempts");
+            return this;
+        }
+
+        /**
+         * How long a failed document waits before its first retry, doubled for every further one.
+         */
+        public Builder retryBackoff(Duration retryBackoff) {
+            this.retryBackoff = requirePositive(retryBackoff, "retryBackoff");
+            return this;
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = requirePositive(connectTimeout, "connectTimeout");
+            return this;
+        }
+
+        public SigningClient build() {
+            return new SigningClient(this);
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+            return value;
+        }
+
+        private static Duration requirePositive(Duration value, String name) {
+            if (value.isZero() || value.isNegative()) {
+                throw new IllegalArgumentException(name + " must be positive");
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.uber.egypt.client;
+
+/**
+ * A document the signer did not sign, with the error type of its error entry, e.g.
+ * {@code INVALID_DOCUMENT} or {@code DEADLINE_EXCEEDED}, or {@code REQUEST_FAILURE} if the
+ * request carrying it failed as a whole.
+ */
+public class SigningClientException extends RuntimeException {
+    private final String type;
+
+    public SigningClientException(String type, String message) {
+        super(type + ": " + message);
+        this.type = type;
+    }
+
+    public String getType() {
+        return type;
+    }
+}
@@ -0,0 +1,204 @@
+package com.uber.egypt.client;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.BDDAssertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Testing strategy
+ * <p>
+ * The client signs against a fake signer that decodes requests like the signing server does,
+ * appends a signature to every document and records the batches it receives. Tests check how
+ * documents are grouped into requests and which of them are sent again.
+ */
+public class SigningClientTest {
+    private final Gson gson = new Gson();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final Set<String> failOnce = ConcurrentHashMap.newKeySet();
+    private final Set<String> invalid = ConcurrentHashMap.newKeySet();
+    private HttpServer server;
+
+    @BeforeEach
+    public void startSigner() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/sign", this::sign);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopSigner() {
+        server.stop(0);
+    }
+
+    @Test
+    public void sign_should_send_concurrent_documents_in_one_compressed_batch() throws Exception {
+        // Given.
+        try (var client = client().linger(Duration.ofMillis(200)).build()) {
+
+            // When.
+            var signed = IntStream.range(0, 10).mapToObj(id -> client.sign(document("D" + id))).toList();
+
+            // Then.
+            for (int id = 0; id < 10; id++) {
+                then(signed.get(id).get().get("signatures").getAsJsonArray().get(0).getAsString()).isEqualTo("signature of D" + id);
+            }
+            then(batches).hasSize(1);
+            then(batches.get(0)).hasSize(10);
+        }
+    }
+
+    @Test
+    public void signAll_should_split_documents_into_full_batches_over_one_connection() throws Exception {
+        // Given.
+        var documents = IntStream.range(0, 250).mapToObj(id -> document("D" + id)).toList();
+
+        try (var client = client().maxBatchSize(100).maxConcurrentRequests(1).build()) {
+
+            // When.
+            var signed = client.signAll(documents);
+            CompletableFuture.allOf(signed.toArray(CompletableFuture[]::new)).get();
+
+            // Then.
+            then(batches).extracting(List::size).containsExactly(100, 100, 50);
+            then(clientPorts).hasSize(1);
+        }
+    }
+
+    @Test
+    public void sign_should_only_retry_the_documents_that_failed() throws Exception {
+        // Given.
+        failOnce.add("D1");
+        invalid.add("D2");
+
+        try (var client = client().retryBackoff(Duration.ofMillis(10)).build()) {
+
+            // When.
+            var signed = client.signAll(List.of(document("D0"), document("D1"), document("D2")));
+            var invalidFailure = catchThrowable(() -> signed.get(2).get());
+
+            // Then.
+            then(signed.get(0).get().has("signatures")).isTrue();
+            then(signed.get(1).get().has("signatures")).isTrue();
+            then(invalidFailure).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(SigningClientException.class);
+            then(((SigningClientException) invalidFailure.getCause()).getType()).isEqualTo("INVALID_DOCUMENT");
+            then(batches).containsExactly(List.of("D0", "D1", "D2"), List.of("D1"));
+        }
+    }
+
+    @Test
+    public void sign_should_give_up_after_the_last_attempt() {
+        // Given.
+        server.removeContext("/sign");
+        server.createContext("/sign", exchange -> respond(exchange, 503, "Try later".getBytes(StandardCharsets.UTF_8)));
+
+        try (var client = client().maxAttempts(2).retryBackoff(Duration.ofMillis(10)).build()) {
+
+            // When.
+            var failure = catchThrowable(() -> client.sign(document("D0")).get());
+
+            // Then.
+            then(failure.getCause()).isInstanceOf(SigningClientException.class);
+            then(((SigningClientException) failure.getCause()).getType()).isEqualTo("REQUEST_FAILURE");
+        }
+    }
+
+    private SigningClient.Builder client() {
+        return SigningClient
+                .builder(URI.create("http://localhost:" + server.getAddress().getPort()))
+                .credentials("user", "password");
+    }
+
+    private static JsonObject document(String internalId) {
+        JsonObject document = new JsonObject();
+        document.addProperty("internalID", internalId);
+        return document;
+    }
+
+    private void sign(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        InputStream body = exchange.getRequestBody();
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            body = new GZIPInputStream(body);
+        }
+        var envelope = gson.fromJson(
+                new String(Base64.getDecoder().decode(body.readAllBytes()), StandardCharsets.UTF_8),
+                JsonObject.class
+        );
+
+        List<String> batch = new ArrayList<>();
+        JsonArray results = new JsonArray();
+        var documents = envelope.getAsJsonArray("documents");
+        for (int index = 0; index < documents.size(); index++) {
+            var document = documents.get(index).getAsJsonObject();
+            var internalId = document.get("internalID").getAsString();
+            batch.add(internalId);
+            if (invalid.contains(internalId)) {
+                results.add(error(index, "INVALID_DOCUMENT"));
+            } else if (failOnce.remove(internalId)) {
+                results.add(error(index, "SIGNATURE_FAILURE"));
+            } else {
+                JsonArray signatures = new JsonArray();
+                signatures.add("signature of " + internalId);
+                document.add("signatures", signatures);
+                results.add(document);
+            }
+        }
+        batches.add(batch);
+
+        JsonObject response = new JsonObject();
+        response.add("documents", results);
+        var compressed = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(response.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        respond(exchange, 200, compressed.toByteArray());
+    }
+
+    private static JsonObject error(int index, String type) {
+        JsonObject error = new JsonObject();
+        error.addProperty("type", type);
+        error.addProperty("message", "Failed");
+
+        JsonObject result = new JsonObject();
+        result.addProperty("index", index);
+        result.add("error", error);
+        return result;
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (var response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.uber.egypt;
+
+import com.uber.egypt.bulk.BulkInputFormat;
+import com.uber.egypt.bulk.BulkSigningJob;
+import com.uber.egypt.bulk.BulkSigningOptions;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.signature.CadesBesSigningStrategy;
+import com.uber.egypt.signature.DocumentSigningService;
+import com.uber.egypt.signature.ResponseMode;
+import com.uber.egypt.signature.SigningKeySourceConfiguration;
+import com.uber.egypt.telemetry.AllocationAccounting;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Signs archived documents from a file instead of over HTTP, e.g. for backfills or to re-sign
+ * after a certificate rotation. Only the signing core of {@link EgyptSigner} is started, with
+ * the same configuration, and neither the web server nor the cluster.
+ */
+public class EgyptBulkSigner {
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 10_000;
+    private static final String USAGE = """
+            Usage: EgyptBulkSigner --input=<file> --output=<file> [--format=ndjson|envelope]
+                                   [--mode=documents|signatures] [--identity=<alias>] [--checkpoint-interval=<documents>]""";
+
+    public static void main(String[] args) throws IOException {
+        BulkSigningOptions options;
+        try {
+            options = parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try (var context = new SpringApplicationBuilder(
+                FileConfigurationReader.class,
+                SigningKeySourceConfiguration.class,
+                CadesBesSigningStrategy.class,
+                AllocationAccounting.class,
+                DocumentSigningService.class
+        ).web(WebApplicationType.NONE).bannerMode(Banner.Mode.OFF).logStartupInfo(false).run(args)) {
+            new BulkSigningJob(
+                    context.getBean(DocumentSigningService.class),
+                    context.getBean(CadesBesSigningStrategy.class)
+            ).run(options);
+        }
+    }
+
+    static BulkSigningOptions parseOptions(String[] args) {
+        Map<String, String> arguments = new HashMap<>();
+        for (var arg : args) {
+            var separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            arguments.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        var input = Path.of(require(arguments, "input"));
+        var checkpointInterval = arguments.remove("checkpoint-interval");
+        var options = new BulkSigningOptions(
+                input,
+                BulkInputFormat.fromName(arguments.remove("format"), input),
+                Path.of(require(arguments, "output")),
+                ResponseMode.fromHeader(arguments.remove("mode")),
+                arguments.remove("identity"),
+                checkpointInterval == null ? DEFAULT_CHECKPOINT_INTERVAL : Integer.parseInt(checkpointInterval)
+        );
+        if (!arguments.isEmpty()) {
+            throw new IllegalArgumentException("Unknown arguments: " + arguments.keySet());
+        }
+        if (options.checkpointInterval() <= 0) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive");
+        }
+        return options;
+    }
+
+    private static String require(Map<String, String> arguments, String name) {
+        var value = arguments.remove(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing argument: --" + name);
+        }
+        return value;
+    }
+}
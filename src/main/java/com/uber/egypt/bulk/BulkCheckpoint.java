@@ -0,0 +1,88 @@
+package com.uber.egypt.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * How far a job got: the number of input documents whose results were written, and the length
+ * of the output at that point. The checkpoint also records the job it belongs to, so that a job
+ * is never resumed with a different input or mode.
+ * <p>
+ * The output is forced to disk before the checkpoint is replaced, and the new checkpoint is
+ * forced to disk before it atomically replaces the old one, so after a crash the checkpoint is
+ * complete and the output holds at least what it says. Anything
+ * written after it is truncated on resume.
+ */
+record BulkCheckpoint(String job, long documents, long errors, long outputOffset) {
+    private static final String JOB = "job";
+    private static final String DOCUMENTS = "documents";
+    private static final String ERRORS = "errors";
+    private static final String OUTPUT_OFFSET = "outputOffset";
+
+    static Path pathFor(Path output) {
+        return output.resolveSibling(output.getFileName() + ".checkpoint");
+    }
+
+    /**
+     * The checkpoint of an interrupted job, or null if the job has not run before.
+     */
+    static BulkCheckpoint load(Path path, String job) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        var properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        if (!job.equals(properties.getProperty(JOB))) {
+            throw new CheckpointMismatchException(path, properties.getProperty(JOB), job);
+        }
+        return new BulkCheckpoint(
+                job,
+                Long.parseLong(properties.getProperty(DOCUMENTS)),
+                Long.parseLong(properties.getProperty(ERRORS)),
+                Long.parseLong(properties.getProperty(OUTPUT_OFFSET))
+        );
+    }
+
+    void save(Path path) throws IOException {
+        var properties = new Properties();
+        properties.setProperty(JOB, job);
+        properties.setProperty(DOCUMENTS, Long.toString(documents));
+        properties.setProperty(ERRORS, Long.toString(errors));
+        properties.setProperty(OUTPUT_OFFSET, Long.toString(outputOffset));
+
+        var content = new StringWriter();
+        properties.store(content, null);
+        var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(
+                temporary,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            var bytes = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class CheckpointMismatchException extends IllegalStateException {
+        CheckpointMismatchException(Path path, String checkpointJob, String job) {
+            super("The checkpoint " + path + " belongs to the job [" + checkpointJob + "], not to [" + job
+                    + "]. Delete it to start over.");
+        }
+    }
+}
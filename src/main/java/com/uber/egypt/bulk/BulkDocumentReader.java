@@ -0,0 +1,159 @@
+package com.uber.egypt.bulk;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.uber.egypt.document.InvalidDocumentFormatException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Reads the documents of an input file one at a time, so that a file of any size is signed in
+ * constant memory.
+ */
+interface BulkDocumentReader extends Closeable {
+
+    /**
+     * The next document, or null at the end of the input.
+     */
+    BulkDocument next() throws IOException;
+
+    /**
+     * Skips the next document without parsing it, and returns false at the end of the input.
+     */
+    boolean skip() throws IOException;
+
+    static BulkDocumentReader open(Path file, BulkInputFormat format) throws IOException {
+        var input = new MappedFileInputStream(file);
+        return format == BulkInputFormat.NDJSON ? new NdjsonReader(input) : new EnvelopeReader(input);
+    }
+
+    /**
+     * A document either as the UTF-8 JSON of one line, which is parsed by the worker that signs
+     * it, or already parsed from an envelope.
+     */
+    record BulkDocument(byte[] json, JsonElement parsed) {
+    }
+
+    /**
+     * Splits the input at line feeds. Blank lines are not documents. A skipped line is never
+     * copied out of the mapping.
+     */
+    class NdjsonReader implements BulkDocumentReader {
+        private final MappedFileInputStream input;
+
+        NdjsonReader(MappedFileInputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public BulkDocument next() throws IOException {
+            var line = readLine();
+            if (line == null) {
+                return null;
+            }
+            var json = new byte[line.remaining()];
+            line.get(json);
+            return new BulkDocument(json, null);
+        }
+
+        @Override
+        public boolean skip() throws IOException {
+            return readLine() != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+
+        // Reads up to the next line that is not blank, and returns null at the end of the input.
+        private ByteBuffer readLine() throws IOException {
+            ByteBuffer line;
+            while ((line = input.readLine()) != null) {
+                if (!isBlank(line)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isBlank(ByteBuffer line) {
+            for (int index = line.position(); index < line.limit(); index++) {
+                var next = line.get(index);
+                if (next != ' ' && next != '\t' && next != '\r') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Streams the elements of the {@code documents} array of an envelope. A document that is not
+     * valid JSON ends the input, since the rest of the array can no longer be found.
+     */
+    class EnvelopeReader implements BulkDocumentReader {
+        private static final String DOCUMENTS_ARRAY_KEY = "documents";
+        private final Gson gson = new Gson();
+        private final JsonReader reader;
+        private boolean inDocuments;
+
+        EnvelopeReader(InputStream input) {
+            this.reader = new JsonReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public BulkDocument next() throws IOException {
+            if (!hasNext()) {
+                return null;
+            }
+            try {
+                return new BulkDocument(null, gson.fromJson(reader, JsonElement.class));
+            } catch (JsonParseException e) {
+                throw new InvalidDocumentFormatException(e);
+            }
+        }
+
+        @Override
+        public boolean skip() throws IOException {
+            if (!hasNext()) {
+                return false;
+            }
+            reader.skipValue();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private boolean hasNext() throws IOException {
+            if (!inDocuments) {
+                openDocumentsArray();
+            }
+            return reader.hasNext();
+        }
+
+        private void openDocumentsArray() throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals(DOCUMENTS_ARRAY_KEY)) {
+                    reader.beginArray();
+                    inDocuments = true;
+                    return;
+                }
+                reader.skipValue();
+            }
+            throw new InvalidDocumentFormatException("The input has no " + DOCUMENTS_ARRAY_KEY + " array");
+        }
+    }
+}
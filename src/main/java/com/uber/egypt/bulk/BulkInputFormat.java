@@ -0,0 +1,24 @@
+package com.uber.egypt.bulk;
+
+import java.nio.file.Path;
+
+/**
+ * The layout of an input file: one document per line, or the {@code documents} envelope that
+ * {@code /sign} takes, without the Base64 encoding.
+ */
+public enum BulkInputFormat {
+    NDJSON,
+    ENVELOPE;
+
+    /**
+     * The named format or, if none is named, the format suggested by the extension of the file:
+     * {@code .ndjson} and {@code .jsonl} files hold one document per line.
+     */
+    public static BulkInputFormat fromName(String name, Path file) {
+        if (name != null && !name.isBlank()) {
+            return valueOf(name.trim().toUpperCase());
+        }
+        var fileName = file.getFileName().toString().toLowerCase();
+        return fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl") ? NDJSON : ENVELOPE;
+    }
+}
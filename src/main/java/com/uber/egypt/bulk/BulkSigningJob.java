@@ -0,0 +1,208 @@
+package com.uber.egypt.bulk;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.uber.egypt.document.CanonicalFragmentCache;
+import com.uber.egypt.signature.CadesBesSigningStrategy;
+import com.uber.egypt.signature.DocumentSigningService;
+import com.uber.egypt.signature.ResponseMode;
+import com.uber.egypt.signature.SigningIdentity;
+import com.uber.egypt.signature.SigningPriority;
+import com.uber.egypt.telemetry.SigningContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Signs every document of an input file with the signing workers of the server, and writes one
+ * line of JSON per document to the output file in input order: what {@code /sign/stream} would
+ * return for it.
+ * <p>
+ * Documents are read while earlier documents are being signed, but only a few per worker are
+ * in flight at any time, so the input and the output are streamed rather than held in memory.
+ * Every {@link BulkSigningOptions#checkpointInterval()} documents a {@link BulkCheckpoint} is
+ * written, from which an interrupted job resumes when it is started again with the same
+ * arguments. The checkpoint is deleted once the job completes.
+ */
+public class BulkSigningJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkSigningJob.class);
+    private static final int DOCUMENTS_IN_FLIGHT_PER_WORKER = 4;
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+    private static final String ERROR_KEY = "error";
+    private final DocumentSigningService documentSigningService;
+    private final CadesBesSigningStrategy cadesBesSigningStrategy;
+    private final Gson gson = new Gson();
+
+    public BulkSigningJob(DocumentSigningService documentSigningService, CadesBesSigningStrategy cadesBesSigningStrategy) {
+        this.documentSigningService = documentSigningService;
+        this.cadesBesSigningStrategy = cadesBesSigningStrategy;
+    }
+
+    public void run(BulkSigningOptions options) throws IOException {
+        var identity = cadesBesSigningStrategy.getIdentity(options.identity());
+        var job = describe(options, identity);
+        var checkpointPath = BulkCheckpoint.pathFor(options.output());
+        var checkpoint = BulkCheckpoint.load(checkpointPath, job);
+        if (checkpoint == null) {
+            checkpoint = new BulkCheckpoint(job, 0, 0, 0);
+        } else {
+            LOGGER.info("Resuming {} after {} documents", options.input(), checkpoint.documents());
+        }
+
+        try (var reader = BulkDocumentReader.open(options.input(), options.format());
+             var channel = FileChannel.open(options.output(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(checkpoint.outputOffset());
+            channel.position(checkpoint.outputOffset());
+            skipDocuments(reader, checkpoint.documents());
+
+            var progress = new Progress(checkpoint, channel, checkpointPath, options.checkpointInterval());
+            signDocuments(reader, progress, options.mode(), identity);
+            progress.complete();
+            LOGGER.info(
+                    "Signed {} documents of {} into {}, {} of them failed",
+                    progress.documents, options.input(), options.output(), progress.errors
+            );
+        }
+    }
+
+    private void signDocuments(
+            BulkDocumentReader reader,
+            Progress progress,
+            ResponseMode mode,
+            SigningIdentity identity
+    ) throws IOException {
+        var batchId = SigningContext.nextBatchId();
+        var fragments = new CanonicalFragmentCache();
+        var maxInFlight = cadesBesSigningStrategy.getWorkerCount() * DOCUMENTS_IN_FLIGHT_PER_WORKER;
+        Deque<CompletableFuture<SignedLine>> pending = new ArrayDeque<>();
+        var index = progress.documents;
+        try {
+            BulkDocumentReader.BulkDocument document;
+            while ((document = reader.next()) != null) {
+                pending.add(submit(batchId, Math.toIntExact(index++), document, mode, identity, fragments));
+                if (pending.size() >= maxInFlight) {
+                    progress.write(pending.poll().join());
+                }
+            }
+        } finally {
+            // Whatever was read before a failure is still written, so that a resumed job starts
+            // at the document that failed.
+            while (!pending.isEmpty()) {
+                progress.write(pending.poll().join());
+            }
+            progress.checkpoint();
+        }
+    }
+
+    private CompletableFuture<SignedLine> submit(
+            long batchId,
+            int index,
+            BulkDocumentReader.BulkDocument document,
+            ResponseMode mode,
+            SigningIdentity identity,
+            CanonicalFragmentCache fragments
+    ) {
+        var signed = document.json() != null
+                ? documentSigningService.signBatchDocument(batchId, index, document.json(), SigningPriority.BULK, mode, identity, fragments)
+                : documentSigningService.signBatchDocument(batchId, index, document.parsed(), SigningPriority.BULK, mode, identity, fragments);
+        return signed.thenApply(this::toLine);
+    }
+
+    // Runs on the worker that signed the document, so the main thread only copies bytes.
+    private SignedLine toLine(JsonObject result) {
+        var line = (gson.toJson(result) + "\n").getBytes(StandardCharsets.UTF_8);
+        return new SignedLine(line, result.has(ERROR_KEY));
+    }
+
+    private static void skipDocuments(BulkDocumentReader reader, long documents) throws IOException {
+        for (long skipped = 0; skipped < documents; skipped++) {
+            if (!reader.skip()) {
+                throw new IllegalStateException("The input has fewer documents than its checkpoint");
+            }
+        }
+    }
+
+    // A checkpoint only applies to the same input, unchanged since it was written, signed the
+    // same way.
+    private static String describe(BulkSigningOptions options, SigningIdentity identity) throws IOException {
+        var input = options.input().toAbsolutePath().normalize();
+        return String.join(
+                ";",
+                input.toString(),
+                Long.toString(Files.size(input)),
+                Long.toString(Files.getLastModifiedTime(input).toMillis()),
+                options.format().name(),
+                options.mode().name(),
+                identity.getName()
+        );
+    }
+
+    private record SignedLine(byte[] bytes, boolean error) {
+    }
+
+    private static class Progress {
+        private final String job;
+        private final FileChannel channel;
+        private final OutputStream output;
+        private final Path checkpointPath;
+        private final int checkpointInterval;
+        private final long startNanos = System.nanoTime();
+        private final long resumedDocuments;
+        private long documents;
+        private long errors;
+        private long outputOffset;
+
+        Progress(BulkCheckpoint checkpoint, FileChannel channel, Path checkpointPath, int checkpointInterval) {
+            this.job = checkpoint.job();
+            this.channel = channel;
+            this.output = new BufferedOutputStream(Channels.newOutputStream(channel), OUTPUT_BUFFER_SIZE);
+            this.checkpointPath = checkpointPath;
+            this.checkpointInterval = checkpointInterval;
+            this.resumedDocuments = checkpoint.documents();
+            this.documents = checkpoint.documents();
+            this.errors = checkpoint.errors();
+            this.outputOffset = checkpoint.outputOffset();
+        }
+
+        void write(SignedLine line) throws IOException {
+            output.write(line.bytes());
+            outputOffset += line.bytes().length;
+            documents++;
+            if (line.error()) {
+                errors++;
+            }
+            if (documents % checkpointInterval == 0) {
+                checkpoint();
+                var seconds = (System.nanoTime() - startNanos) / 1e9;
+                LOGGER.info(
+                        "Signed {} documents, {} of them failed, {} documents/s",
+                        documents, errors, Math.round((documents - resumedDocuments) / seconds)
+                );
+            }
+        }
+
+        void checkpoint() throws IOException {
+            output.flush();
+            channel.force(false);
+            new BulkCheckpoint(job, documents, errors, outputOffset).save(checkpointPath);
+        }
+
+        void complete() throws IOException {
+            output.flush();
+            channel.force(false);
+            Files.deleteIfExists(checkpointPath);
+        }
+    }
+}
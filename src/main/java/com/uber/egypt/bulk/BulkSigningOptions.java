@@ -0,0 +1,20 @@
+package com.uber.egypt.bulk;
+
+import com.uber.egypt.signature.ResponseMode;
+
+import java.nio.file.Path;
+
+/**
+ * What an offline job signs and how: the input file and its format, the output file, what is
+ * written for every document, the identity the documents are signed for (the default identity
+ * if null), and the number of documents between two checkpoints.
+ */
+public record BulkSigningOptions(
+        Path input,
+        BulkInputFormat format,
+        Path output,
+        ResponseMode mode,
+        String identity,
+        int checkpointInterval
+) {
+}
@@ -0,0 +1,127 @@
+package com.uber.egypt.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through memory mapped windows, so that the pages of an archive are read by the
+ * kernel ahead of the reader instead of being copied through a heap buffer. A single mapping is
+ * limited to 2 GiB, so larger files are mapped one window after the other.
+ * <p>
+ * Lines are found by scanning the mapping itself, so that a line is not copied byte by byte.
+ */
+class MappedFileInputStream extends InputStream {
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    MappedFileInputStream(Path file) throws IOException {
+        this(file, WINDOW_SIZE);
+    }
+
+    MappedFileInputStream(Path file, long windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.windowStart = 0;
+        this.window = map(0);
+    }
+
+    /**
+     * The bytes up to the next line feed, which is consumed but not included, or null at the end
+     * of the file. A line within one window is a slice of the mapping. Only a line that spans two
+     * windows is copied.
+     */
+    ByteBuffer readLine() throws IOException {
+        ByteBuffer spanningLine = null;
+        while (ensureRemaining()) {
+            var start = window.position();
+            var lineFeed = indexOfLineFeed(start);
+            var end = lineFeed >= 0 ? lineFeed : window.limit();
+            var part = window.slice(start, end - start);
+            window.position(lineFeed >= 0 ? lineFeed + 1 : end);
+            if (spanningLine == null && lineFeed >= 0) {
+                return part;
+            }
+            spanningLine = append(spanningLine, part);
+            if (lineFeed >= 0) {
+                return spanningLine.flip();
+            }
+        }
+        return spanningLine == null ? null : spanningLine.flip();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        return window.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureRemaining()) {
+            return -1;
+        }
+        var read = Math.min(length, window.remaining());
+        window.get(buffer, offset, read);
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return window.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean ensureRemaining() throws IOException {
+        if (window.hasRemaining()) {
+            return true;
+        }
+        var nextWindowStart = windowStart + window.capacity();
+        if (nextWindowStart >= size) {
+            return false;
+        }
+        windowStart = nextWindowStart;
+        window = map(nextWindowStart);
+        return true;
+    }
+
+    private int indexOfLineFeed(int from) {
+        for (int index = from; index < window.limit(); index++) {
+            if (window.get(index) == '\n') {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer append(ByteBuffer line, ByteBuffer part) {
+        var length = line == null ? 0 : line.position();
+        var grownLine = ByteBuffer.allocate(length + part.remaining());
+        if (line != null) {
+            grownLine.put(line.flip());
+        }
+        return grownLine.put(part);
+    }
+
+    private MappedByteBuffer map(long position) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+    }
+}
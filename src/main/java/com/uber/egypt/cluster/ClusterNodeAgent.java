@@ -0,0 +1,106 @@
+package com.uber.egypt.cluster;
+
+import com.google.gson.JsonObject;
+import com.uber.egypt.configuration.ClusterRole;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.signature.CadesBesSigningStrategy;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the load of this signer to the coordinator when running as a cluster node.
+ * <p>
+ * The sign rate is a moving average over the heartbeat intervals in which the node was busy, so
+ * that an idle node still advertises the rate its token can sustain.
+ */
+@Component
+public class ClusterNodeAgent {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterNodeAgent.class);
+    private static final double SIGN_RATE_SMOOTHING = 0.3;
+    private final FileConfigurationReader configurationReader;
+    private final CadesBesSigningStrategy cadesBesSigningStrategy;
+    private ScheduledExecutorService heartbeats;
+    private RestClient coordinator;
+    private long previousCompletedSignatures;
+    private long previousHeartbeatNanos;
+    private double signRate;
+
+    ClusterNodeAgent(FileConfigurationReader configurationReader, CadesBesSigningStrategy cadesBesSigningStrategy) {
+        this.configurationReader = configurationReader;
+        this.cadesBesSigningStrategy = cadesBesSigningStrategy;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (configurationReader.getClusterRole() != ClusterRole.NODE) {
+            return;
+        }
+        coordinator = ClusterRestClients.create(configurationReader);
+        previousHeartbeatNanos = System.nanoTime();
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "cluster-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var interval = configurationReader.getClusterHeartbeatIntervalMillis();
+        heartbeats.scheduleAtFixedRate(this::tryHeartbeat, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (heartbeats != null) {
+            heartbeats.shutdownNow();
+        }
+    }
+
+    private void tryHeartbeat() {
+        try {
+            heartbeat();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not report the load to the coordinator: {}", e.getMessage());
+        }
+    }
+
+    private void heartbeat() {
+        var queueDepth = cadesBesSigningStrategy.getQueueDepth();
+        updateSignRate(queueDepth);
+
+        JsonObject status = new JsonObject();
+        status.addProperty("url", configurationReader.getClusterNodeUrl());
+        status.addProperty("queueDepth", queueDepth);
+        status.addProperty("signRate", signRate);
+        coordinator
+                .post()
+                .uri(configurationReader.getClusterCoordinatorUrl() + "/cluster/nodes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(status.toString())
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private void updateSignRate(int queueDepth) {
+        var completedSignatures = cadesBesSigningStrategy.getCompletedSignatureCount();
+        var now = System.nanoTime();
+        var signed = completedSignatures - previousCompletedSignatures;
+        var elapsedSeconds = (now - previousHeartbeatNanos) / 1e9;
+        previousCompletedSignatures = completedSignatures;
+        previousHeartbeatNanos = now;
+
+        if (signed == 0 && queueDepth == 0) {
+            return;
+        }
+        var intervalRate = signed / elapsedSeconds;
+        signRate = signRate == 0
+                ? intervalRate
+                : SIGN_RATE_SMOOTHING * intervalRate + (1 - SIGN_RATE_SMOOTHING) * signRate;
+    }
+}
@@ -0,0 +1,88 @@
+package com.uber.egypt.cluster;
+
+import com.uber.egypt.configuration.ClusterRole;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The signer nodes known to the coordinator, keyed by their URL.
+ * <p>
+ * Nodes register implicitly with their first heartbeat, but only if their URL is one of the
+ * configured node URLs: the coordinator sends documents and its credentials to every registered
+ * node. A node that missed three heartbeats is no longer routed to until it reports again.
+ */
+@Component
+public class ClusterRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterRegistry.class);
+    private static final int MISSED_HEARTBEATS_BEFORE_EVICTION = 3;
+    private final Map<String, NodeStatus> nodesByUrl = new ConcurrentHashMap<>();
+    private final Set<String> allowedUrls;
+    private final long heartbeatIntervalMillis;
+
+    ClusterRegistry(FileConfigurationReader configurationReader) {
+        this.allowedUrls = configurationReader
+                .getClusterNodeUrls()
+                .stream()
+                .map(ClusterRegistry::normalizeUrl)
+                .collect(Collectors.toUnmodifiableSet());
+        this.heartbeatIntervalMillis = configurationReader.getClusterHeartbeatIntervalMillis();
+        if (configurationReader.getClusterRole() == ClusterRole.COORDINATOR && allowedUrls.isEmpty()) {
+            LOGGER.warn("No cluster.nodeUrls are configured, so no node can register with this coordinator");
+        }
+    }
+
+    /**
+     * Records the load reported by a node, and returns whether the node is allowed to register.
+     */
+    public boolean heartbeat(String url, int queueDepth, double signRate) {
+        var normalizedUrl = normalizeUrl(url);
+        if (!allowedUrls.contains(normalizedUrl)) {
+            LOGGER.warn("Rejected the heartbeat of {}, which is not one of the cluster.nodeUrls", url);
+            return false;
+        }
+        nodesByUrl
+                .computeIfAbsent(normalizedUrl, NodeStatus::new)
+                .update(queueDepth, signRate, System.currentTimeMillis());
+        return true;
+    }
+
+    public List<NodeStatus> getLiveNodes() {
+        var oldestLiveHeartbeat = System.currentTimeMillis() - MISSED_HEARTBEATS_BEFORE_EVICTION * heartbeatIntervalMillis;
+        return nodesByUrl
+                .values()
+                .stream()
+                .filter(node -> node.getLastHeartbeatMillis() >= oldestLiveHeartbeat)
+                .toList();
+    }
+
+    /**
+     * Picks the live node expected to finish a chunk of the given size first, and accounts the
+     * chunk to it until it is released.
+     */
+    synchronized Optional<NodeStatus> assign(int documents, String excludedUrl) {
+        var node = getLiveNodes()
+                .stream()
+                .filter(candidate -> !candidate.getUrl().equals(excludedUrl))
+                .min(Comparator.comparingDouble(candidate -> candidate.estimateCompletionSeconds(documents)));
+        node.ifPresent(selected -> selected.assign(documents));
+        return node;
+    }
+
+    private static String normalizeUrl(String url) {
+        var normalizedUrl = url.trim();
+        while (normalizedUrl.endsWith("/")) {
+            normalizedUrl = normalizedUrl.substring(0, normalizedUrl.length() - 1);
+        }
+        return normalizedUrl;
+    }
+}
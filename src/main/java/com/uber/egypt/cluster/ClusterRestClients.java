@@ -0,0 +1,38 @@
+package com.uber.egypt.cluster;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+class ClusterRestClients {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+    private ClusterRestClients() {
+    }
+
+    /**
+     * A client authenticating with the Basic credentials of this signer, which every member of the
+     * cluster shares. The TLS trust store is the one of the JVM. A member that accepts a request
+     * but does not answer it fails the request after the read timeout, instead of blocking the
+     * calling thread forever.
+     */
+    static RestClient create(FileConfigurationReader configurationReader) {
+        var httpClient = HttpClient
+                .newBuilder()
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build();
+        var requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(configurationReader.getClusterReadTimeoutMillis()));
+        return RestClient
+                .builder()
+                .requestFactory(requestFactory)
+                .defaultHeaders(headers -> headers.setBasicAuth(
+                        configurationReader.getUserName(),
+                        configurationReader.getPassword()
+                ))
+                .build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.uber.egypt.cluster;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.signature.SigningDeadline;
+import com.uber.egypt.signature.SigningPriority;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Splits a large batch into chunks, signs every chunk on the node expected to finish it first and
+ * merges the results back in input order.
+ * <p>
+ * A chunk whose node fails is retried once on another node. If that fails too, every document of
+ * the chunk is reported as an error entry, like any other per-document failure.
+ * <p>
+ * Every chunk carries the time left until the deadline of the batch, so that nodes drop the
+ * documents nobody waits for any longer. Chunks that have not been sent by then are not sent.
+ * <p>
+ * At most {@code cluster.maxChunksPerNode} chunks per configured node are sent at once, over all
+ * batches. Further chunks wait in the queue of the dispatchers, which holds back large and
+ * concurrent batches instead of opening ever more connections to the nodes.
+ */
+@Component
+public class ClusterSigningService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterSigningService.class);
+    private static final String DOCUMENTS_ARRAY_KEY = "documents";
+    private static final String PRIORITY_HEADER = "X-Signing-Priority";
+    private static final String TIMEOUT_HEADER = "X-Signing-Timeout";
+    private final ClusterRegistry clusterRegistry;
+    private final RestClient nodes;
+    private final int chunkSize;
+    private final ExecutorService dispatchers;
+    private final Gson gson;
+
+    ClusterSigningService(ClusterRegistry clusterRegistry, FileConfigurationReader configurationReader) {
+        this.clusterRegistry = clusterRegistry;
+        this.nodes = ClusterRestClients.create(configurationReader);
+        this.chunkSize = configurationReader.getClusterChunkSize();
+        var dispatcherCount = Math.max(1, configurationReader.getClusterNodeUrls().size())
+                * configurationReader.getClusterMaxChunksPerNode();
+        this.dispatchers = Executors.newFixedThreadPool(dispatcherCount, runnable -> {
+            var thread = new Thread(runnable, "cluster-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.gson = new Gson();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchers.shutdown();
+    }
+
+    /**
+     * Signs a batch on the nodes. Without a timeout, every node applies its own default timeout.
+     */
+    public String generateSignedDocuments(byte[] documents, SigningPriority priority, Duration timeout) {
+        var deadline = timeout == null ? SigningDeadline.none() : SigningDeadline.after(timeout);
+        var reader = new InputStreamReader(new ByteArrayInputStream(documents), StandardCharsets.UTF_8);
+        var unsignedDocuments = gson
+                .fromJson(reader, JsonObject.class)
+                .get(DOCUMENTS_ARRAY_KEY)
+                .getAsJsonArray();
+
+        List<CompletableFuture<JsonArray>> pendingChunks = new ArrayList<>();
+        for (int offset = 0; offset < unsignedDocuments.size(); offset += chunkSize) {
+            var chunk = slice(unsignedDocuments, offset, Math.min(offset + chunkSize, unsignedDocuments.size()));
+            var chunkOffset = offset;
+            pendingChunks.add(CompletableFuture.supplyAsync(() -> signChunk(chunk, chunkOffset, priority, deadline), dispatchers));
+        }
+
+        JsonArray signedDocuments = new JsonArray();
+        pendingChunks.forEach(pendingChunk -> signedDocuments.addAll(pendingChunk.join()));
+        JsonObject result = new JsonObject();
+        result.add(DOCUMENTS_ARRAY_KEY, signedDocuments);
+        return result.toString();
+    }
+
+    private JsonArray signChunk(JsonArray chunk, int offset, SigningPriority priority, SigningDeadline deadline) {
+        String failedUrl = null;
+        String failure = "No signer node is available";
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (deadline.isExpired()) {
+                failure = "The request passed its deadline before the documents were signed";
+                return buildErrors(chunk.size(), offset, "DEADLINE_EXCEEDED", failure);
+            }
+            var node = clusterRegistry.assign(chunk.size(), failedUrl);
+            if (node.isEmpty()) {
+                break;
+            }
+            try {
+                return reindexErrors(sendChunk(node.get(), chunk, priority, deadline), offset);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Signer node {} failed a chunk of {} documents: {}", node.get().getUrl(), chunk.size(), e.getMessage());
+                failedUrl = node.get().getUrl();
+                failure = "Signer node " + failedUrl + " failed: " + e.getMessage();
+            } finally {
+                node.get().release(chunk.size());
+            }
+        }
+        return buildErrors(chunk.size(), offset, "NODE_FAILURE", failure);
+    }
+
+    private JsonArray sendChunk(NodeStatus node, JsonArray chunk, SigningPriority priority, SigningDeadline deadline) {
+        JsonObject envelope = new JsonObject();
+        envelope.add(DOCUMENTS_ARRAY_KEY, chunk);
+        var body = Base64.getEncoder().encodeToString(envelope.toString().getBytes(StandardCharsets.UTF_8));
+
+        var request = nodes
+                .post()
+                .uri(node.getUrl() + "/sign")
+                .contentType(MediaType.TEXT_PLAIN)
+                .header(PRIORITY_HEADER, priority.name());
+        var remaining = deadline.getRemaining();
+        if (remaining != null) {
+            request.header(TIMEOUT_HEADER, Long.toString(Math.max(1, remaining.toMillis())));
+        }
+        var response = request
+                .body(body)
+                .retrieve()
+                .body(String.class);
+        var signedDocuments = gson
+                .fromJson(response, JsonObject.class)
+                .get(DOCUMENTS_ARRAY_KEY)
+                .getAsJsonArray();
+        if (signedDocuments.size() != chunk.size()) {
+            throw new IllegalStateException("Expected " + chunk.size() + " documents but got " + signedDocuments.size());
+        }
+        return signedDocuments;
+    }
+
+    // Error entries of a node refer to positions within the chunk.
+    private static JsonArray reindexErrors(JsonArray signedDocuments, int offset) {
+        for (JsonElement signedDocument : signedDocuments) {
+            var document = signedDocument.getAsJsonObject();
+            if (document.has("error") && document.has("index")) {
+                document.addProperty("index", document.get("index").getAsInt() + offset);
+            }
+        }
+        return signedDocuments;
+    }
+
+    private static JsonArray buildErrors(int size, int offset, String type, String message) {
+        JsonArray errors = new JsonArray();
+        for (int index = offset; index < offset + size; index++) {
+            JsonObject error = new JsonObject();
+            error.addProperty("type", type);
+            error.addProperty("message", message);
+
+            JsonObject result = new JsonObject();
+            result.addProperty("index", index);
+            result.add("error", error);
+            errors.add(result);
+        }
+        return errors;
+    }
+
+    private static JsonArray slice(JsonArray documents, int from, int to) {
+        JsonArray slice = new JsonArray(to - from);
+        for (int index = from; index < to; index++) {
+            slice.add(documents.get(index));
+        }
+        return slice;
+    }
+}
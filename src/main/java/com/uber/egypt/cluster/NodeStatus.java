@@ -0,0 +1,70 @@
+package com.uber.egypt.cluster;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The last load reported by a signer node, together with the documents the coordinator has routed
+ * to it and not received back yet.
+ * <p>
+ * The reported queue depth already holds the documents routed to the node before its heartbeat,
+ * so only the documents routed since are added to it when estimating its backlog.
+ */
+public class NodeStatus {
+    private final String url;
+    private volatile int queueDepth;
+    private volatile double signRate;
+    private volatile long lastHeartbeatMillis;
+    private final AtomicInteger assignedDocuments = new AtomicInteger();
+    private final AtomicInteger documentsSinceHeartbeat = new AtomicInteger();
+
+    NodeStatus(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public double getSignRate() {
+        return signRate;
+    }
+
+    public long getLastHeartbeatMillis() {
+        return lastHeartbeatMillis;
+    }
+
+    public int getAssignedDocuments() {
+        return assignedDocuments.get();
+    }
+
+    void update(int queueDepth, double signRate, long heartbeatMillis) {
+        this.queueDepth = queueDepth;
+        this.signRate = signRate;
+        this.lastHeartbeatMillis = heartbeatMillis;
+        documentsSinceHeartbeat.set(0);
+    }
+
+    void assign(int documents) {
+        assignedDocuments.addAndGet(documents);
+        documentsSinceHeartbeat.addAndGet(documents);
+    }
+
+    // Documents received back also shorten the backlog reported before they were routed.
+    void release(int documents) {
+        assignedDocuments.addAndGet(-documents);
+        documentsSinceHeartbeat.updateAndGet(since -> Math.max(0, since - documents));
+    }
+
+    /**
+     * The estimated time in seconds until the node would finish the given number of additional
+     * documents. A node that has not reported a rate yet is assumed to sign one document per second.
+     */
+    double estimateCompletionSeconds(int additionalDocuments) {
+        var backlog = queueDepth + documentsSinceHeartbeat.get() + additionalDocuments;
+        return backlog / Math.max(signRate, 1.0);
+    }
+}
@@ -38,7 +38,12 @@ public class BasicAuthWebSecurityConfiguration {
                 .requiresChannel(channel -> channel.anyRequest().requiresSecure())
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers(new AntPathRequestMatcher("/health")).permitAll()
-                        .requestMatchers(new AntPathRequestMatcher("/sign")).authenticated())
+                        .requestMatchers(new AntPathRequestMatcher("/error")).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/sign")).authenticated()
+                        .requestMatchers(new AntPathRequestMatcher("/sign/**")).authenticated()
+                        .requestMatchers(new AntPathRequestMatcher("/verify")).authenticated()
+                        .requestMatchers(new AntPathRequestMatcher("/cluster/**")).authenticated()
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/**")).authenticated())
                 .csrf(AbstractHttpConfigurer::disable) // Spring documentation "... for a service that is used by non-browser clients, you will likely want to disable CSRF protection."
                 .httpBasic(Customizer.withDefaults())
                 .build();
@@ -0,0 +1,16 @@
+package com.uber.egypt.configuration;
+
+public enum ClusterRole {
+    /**
+     * Signs the documents it receives with its own token, without any cluster.
+     */
+    STANDALONE,
+    /**
+     * Signs with its own token and reports its load to the coordinator.
+     */
+    NODE,
+    /**
+     * Splits batches into chunks and routes them to the registered nodes.
+     */
+    COORDINATOR
+}
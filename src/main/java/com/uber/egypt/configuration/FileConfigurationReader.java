@@ -4,12 +4,15 @@ import org.springframework.context.annotation.Configuration;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 @Configuration
 public class FileConfigurationReader {
 
     private static final String CONFIG_FILE_NAME = "application.properties";
+    private static final String DEFAULT_KEY_STORE_TYPE = "PKCS11";
     private final Properties properties;
 
     FileConfigurationReader() {
@@ -17,10 +20,18 @@ public class FileConfigurationReader {
     }
 
 
+    public String getKeyStoreType() {
+        return properties.getProperty("signature.keystore.type", DEFAULT_KEY_STORE_TYPE);
+    }
+
     public String getPkcs11ConfigFilePath() {
         return properties.getProperty("signature.keystore.pkcs11ConfigFilePath");
     }
 
+    public String getKeyStoreFilePath() {
+        return properties.getProperty("signature.keystore.filePath");
+    }
+
     public String getKeyStorePassword() {
         return properties.getProperty("signature.keystore.password");
     }
@@ -29,6 +40,151 @@ public class FileConfigurationReader {
         return properties.getProperty("signature.keystore.certificateIssuerName");
     }
 
+    /**
+     * The number of signing workers, or {@code null} to derive it from the keystore type.
+     */
+    public Integer getSigningWorkers() {
+        var signingWorkers = properties.getProperty("signature.workers");
+        return signingWorkers == null ? null : Integer.valueOf(signingWorkers.trim());
+    }
+
+    /**
+     * The minimum share of the signing workers reserved for bulk documents while interactive
+     * documents are waiting.
+     */
+    public double getBulkMinimumShare() {
+        return Double.parseDouble(properties.getProperty("signature.lanes.bulkMinimumShare", "0.2").trim());
+    }
+
+    /**
+     * Whether the number of concurrent token calls adapts to the measured latency, instead of
+     * being fixed to the number of signing workers.
+     */
+    public boolean isAdaptiveConcurrencyEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("signature.concurrency.adaptive", "true").trim());
+    }
+
+    /**
+     * The number of concurrent token calls the adaptive limit may grow to, or {@code null} for
+     * twice the number of signing workers.
+     */
+    public Integer getMaxTokenConcurrency() {
+        var maxTokenConcurrency = properties.getProperty("signature.concurrency.maxLimit");
+        return maxTokenConcurrency == null ? null : Integer.valueOf(maxTokenConcurrency.trim());
+    }
+
+    /**
+     * Whether the heap allocations of every batch are measured per stage and per client.
+     */
+    public boolean isAllocationAccountingEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("signature.allocation.accounting", "true").trim());
+    }
+
+    /**
+     * How long the signer keeps working for a request that carries no timeout of its own, in
+     * milliseconds, or {@code null} to sign every document however long it takes.
+     */
+    public Long getDefaultSigningTimeoutMillis() {
+        var timeout = properties.getProperty("signature.deadline.defaultTimeoutMillis");
+        return timeout == null ? null : Long.valueOf(timeout.trim());
+    }
+
+    /**
+     * The number of /sign/stream requests read at once. Every stream holds a thread while its
+     * body is uploaded, so further streams are rejected.
+     */
+    public int getMaxConcurrentStreams() {
+        return Integer.parseInt(properties.getProperty("signature.stream.maxConcurrentStreams", "64").trim());
+    }
+
+    /**
+     * The path of a PEM file with the certificate authorities that signer certificates must chain
+     * to for /verify to report their signatures valid, or {@code null} to not check the chain.
+     */
+    public String getVerificationTrustAnchorsPath() {
+        return properties.getProperty("signature.verification.trustAnchorsPath");
+    }
+
+    public ClusterRole getClusterRole() {
+        return ClusterRole.valueOf(properties.getProperty("cluster.role", ClusterRole.STANDALONE.name()).trim().toUpperCase());
+    }
+
+    public String getClusterCoordinatorUrl() {
+        return properties.getProperty("cluster.coordinatorUrl");
+    }
+
+    public String getClusterNodeUrl() {
+        return properties.getProperty("cluster.nodeUrl");
+    }
+
+    public long getClusterHeartbeatIntervalMillis() {
+        return Long.parseLong(properties.getProperty("cluster.heartbeatIntervalMillis", "1000").trim());
+    }
+
+    public int getClusterChunkSize() {
+        return Integer.parseInt(properties.getProperty("cluster.chunkSize", "50").trim());
+    }
+
+    /**
+     * The base URLs of the nodes allowed to register with the coordinator.
+     */
+    public List<String> getClusterNodeUrls() {
+        var nodeUrls = properties.getProperty("cluster.nodeUrls", "");
+        return Arrays
+                .stream(nodeUrls.split(","))
+                .map(String::trim)
+                .filter(nodeUrl -> !nodeUrl.isEmpty())
+                .toList();
+    }
+
+    /**
+     * The number of chunks the coordinator sends to one node at once.
+     */
+    public int getClusterMaxChunksPerNode() {
+        return Integer.parseInt(properties.getProperty("cluster.maxChunksPerNode", "4").trim());
+    }
+
+    /**
+     * How long a member of the cluster waits for the response of another, in milliseconds, before
+     * it gives up on it.
+     */
+    public long getClusterReadTimeoutMillis() {
+        return Long.parseLong(properties.getProperty("cluster.readTimeoutMillis", "60000").trim());
+    }
+
+    /**
+     * The path of the Unix domain socket of the local signing listener, or {@code null} if it
+     * does not listen on one.
+     */
+    public String getLocalSocketPath() {
+        return properties.getProperty("socket.path");
+    }
+
+    /**
+     * The loopback TCP port of the local signing listener, or {@code null} if it does not listen
+     * on one.
+     */
+    public Integer getLocalSocketPort() {
+        var port = properties.getProperty("socket.port");
+        return port == null ? null : Integer.valueOf(port.trim());
+    }
+
+    /**
+     * The secret every connection to the loopback TCP port must send before it can sign, or
+     * {@code null} if none is set, in which case the port is not opened.
+     */
+    public String getLocalSocketSecret() {
+        return properties.getProperty("socket.secret");
+    }
+
+    /**
+     * The largest request body accepted once decompressed, in bytes, so that a small compressed
+     * body cannot expand without bound.
+     */
+    public long getMaxDecompressedRequestBytes() {
+        return Long.parseLong(properties.getProperty("request.maxDecompressedBytes", "268435456").trim());
+    }
+
     public String getUserName() {
         return properties.getProperty("auth.user.userName");
     }
@@ -50,6 +206,10 @@ public class FileConfigurationReader {
         InputStream propertiesResource =
                 FileConfigurationReader.class.getClassLoader().getResourceAsStream(CONFIG_FILE_NAME);
         properties.load(propertiesResource);
+        // System properties take precedence, so that several signers on one host can share a file.
+        System.getProperties().stringPropertyNames().forEach(
+                name -> properties.setProperty(name, System.getProperty(name))
+        );
         return properties;
     }
 
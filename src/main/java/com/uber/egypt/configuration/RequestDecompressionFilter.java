@@ -0,0 +1,249 @@
+package com.uber.egypt.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses request bodies sent with {@code Content-Encoding: gzip}, e.g. by the signing
+ * client, so that controllers read them like any other body. Base64 encoded batches shrink to a
+ * fraction of their size, which matters more than the CPU spent on them for batches sent over
+ * the network. Responses are compressed by the server itself, see {@code server.compression}.
+ * <p>
+ * A body that decompresses to more than the configured maximum is rejected with 413 Payload Too
+ * Large once the maximum is passed, so that a small compressed body cannot fill the heap.
+ */
+@Component
+public class RequestDecompressionFilter extends OncePerRequestFilter {
+    private static final String GZIP = "gzip";
+    private final long maxDecompressedBytes;
+
+    RequestDecompressionFilter(FileConfigurationReader configurationReader) {
+        this.maxDecompressedBytes = configurationReader.getMaxDecompressedRequestBytes();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null || !GZIP.equalsIgnoreCase(encoding.trim())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        try {
+            chain.doFilter(new DecompressedRequest(request, maxDecompressedBytes), response);
+        } catch (DecompressedBodyTooLargeException e) {
+            // Controllers get the status from the annotation, this covers bodies read elsewhere.
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+        }
+    }
+
+    private static class DecompressedRequest extends HttpServletRequestWrapper {
+        private final long maxDecompressedBytes;
+        private ServletInputStream body;
+
+        DecompressedRequest(HttpServletRequest request, long maxDecompressedBytes) {
+            super(request);
+            this.maxDecompressedBytes = maxDecompressedBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (body == null) {
+                body = new DecompressedInputStream(super.getInputStream(), maxDecompressedBytes);
+            }
+            return body;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            var charset = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(
+                    getInputStream(),
+                    charset == null ? StandardCharsets.UTF_8.name() : charset
+            ));
+        }
+
+        // The decompressed length is only known once the body is read, and readers that trust the
+        // Content-Length header would stop at the compressed length.
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isHidden(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isHidden(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            return Collections.enumeration(
+                    Collections.list(super.getHeaderNames()).stream().filter(name -> !isHidden(name)).toList()
+            );
+        }
+
+        private static boolean isHidden(String name) {
+            return HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name);
+        }
+    }
+
+    /**
+     * Decompresses the body as it is read, and counts the decompressed bytes.
+     * <p>
+     * A blocking reader decompresses straight from the request. A gzip stream cannot be
+     * decompressed without blocking, so a non-blocking reader only gets the body once its
+     * compressed bytes were read without blocking, and then decompresses them from memory. It is
+     * told that all data was read as soon as it reads the end of the body.
+     */
+    private static class DecompressedInputStream extends ServletInputStream {
+        private final ServletInputStream compressed;
+        private final long maxBytes;
+        private final byte[] single = new byte[1];
+        private InputStream decompressed;
+        private ReadListener readListener;
+        private ByteArrayOutputStream bufferedBody;
+        private long bytesRead;
+        private boolean finished;
+
+        DecompressedInputStream(ServletInputStream compressed, long maxBytes) {
+            this.compressed = compressed;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            var read = getDecompressed().read(buffer, offset, length);
+            if (read < 0) {
+                finished = true;
+                if (readListener != null) {
+                    readListener.onAllDataRead();
+                }
+                return -1;
+            }
+            bytesRead += read;
+            if (bytesRead > maxBytes) {
+                throw new DecompressedBodyTooLargeException(maxBytes);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return readListener == null || decompressed != null;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            if (this.readListener != null) {
+                throw new IllegalStateException("A read listener was already set");
+            }
+            this.readListener = readListener;
+            this.bufferedBody = new ByteArrayOutputStream();
+            compressed.setReadListener(new CompressedBodyListener());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (decompressed != null) {
+                decompressed.close();
+            }
+            compressed.close();
+        }
+
+        private InputStream getDecompressed() throws IOException {
+            if (decompressed == null) {
+                if (readListener != null) {
+                    throw new IllegalStateException("The body is not ready to be read");
+                }
+                decompressed = new GZIPInputStream(compressed);
+            }
+            return decompressed;
+        }
+
+        // Called by the container whenever compressed bytes can be read without blocking.
+        private class CompressedBodyListener implements ReadListener {
+            private final byte[] buffer = new byte[8192];
+
+            @Override
+            public void onDataAvailable() throws IOException {
+                while (compressed.isReady()) {
+                    var read = compressed.read(buffer);
+                    if (read < 0) {
+                        return;
+                    }
+                    bufferedBody.write(buffer, 0, read);
+                    if (bufferedBody.size() > maxBytes) {
+                        throw new DecompressedBodyTooLargeException(maxBytes);
+                    }
+                }
+            }
+
+            @Override
+            public void onAllDataRead() throws IOException {
+                decompressed = new GZIPInputStream(new ByteArrayInputStream(bufferedBody.toByteArray()));
+                bufferedBody = null;
+                readListener.onDataAvailable();
+            }
+
+            @Override
+            public void onError(Throwable failure) {
+                readListener.onError(failure);
+            }
+        }
+    }
+
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    private static class DecompressedBodyTooLargeException extends RuntimeException {
+
+        DecompressedBodyTooLargeException(long maxBytes) {
+            super("The request body is larger than " + maxBytes + " bytes once decompressed");
+        }
+    }
+}
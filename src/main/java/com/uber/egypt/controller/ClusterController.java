@@ -0,0 +1,117 @@
+package com.uber.egypt.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.uber.egypt.cluster.ClusterRegistry;
+import com.uber.egypt.cluster.ClusterSigningService;
+import com.uber.egypt.configuration.ClusterRole;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Base64;
+
+@RestController
+@RequestMapping("/cluster")
+public class ClusterController {
+    private final ClusterRegistry clusterRegistry;
+    private final ClusterSigningService clusterSigningService;
+    private final boolean coordinator;
+    private final Gson gson;
+
+    protected ClusterController(ClusterRegistry clusterRegistry, ClusterSigningService clusterSigningService, FileConfigurationReader configurationReader) {
+        this.clusterRegistry = clusterRegistry;
+        this.clusterSigningService = clusterSigningService;
+        this.coordinator = configurationReader.getClusterRole() == ClusterRole.COORDINATOR;
+        this.gson = new Gson();
+    }
+
+    @PostMapping(path = "/nodes", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Void> heartbeat(@RequestBody String nodeStatus) {
+        if (!coordinator) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        var status = parseNodeStatus(nodeStatus);
+        var registered = clusterRegistry.heartbeat(
+                status.get("url").getAsString(),
+                status.get("queueDepth").getAsInt(),
+                status.get("signRate").getAsDouble()
+        );
+        if (!registered) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private JsonObject parseNodeStatus(String nodeStatus) {
+        JsonElement status;
+        try {
+            status = gson.fromJson(nodeStatus, JsonElement.class);
+        } catch (JsonParseException e) {
+            status = null;
+        }
+        if (status == null
+                || !status.isJsonObject()
+                || !isString(status.getAsJsonObject().get("url"))
+                || !isNumber(status.getAsJsonObject().get("queueDepth"))
+                || !isNumber(status.getAsJsonObject().get("signRate"))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid node status, expected url, queueDepth and signRate");
+        }
+        return status.getAsJsonObject();
+    }
+
+    private static boolean isString(JsonElement element) {
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString();
+    }
+
+    private static boolean isNumber(JsonElement element) {
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber();
+    }
+
+    @GetMapping("/nodes")
+    public ResponseEntity<String> nodes() {
+        if (!coordinator) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        JsonArray nodes = new JsonArray();
+        clusterRegistry.getLiveNodes().forEach(node -> {
+            JsonObject status = new JsonObject();
+            status.addProperty("url", node.getUrl());
+            status.addProperty("queueDepth", node.getQueueDepth());
+            status.addProperty("signRate", node.getSignRate());
+            status.addProperty("assignedDocuments", node.getAssignedDocuments());
+            nodes.add(status);
+        });
+        return ResponseEntity.ok(nodes.toString());
+    }
+
+    @PostMapping("/sign")
+    public ResponseEntity<String> signDocuments(
+            @RequestBody byte[] jsonDocuments,
+            @RequestHeader(name = SignatureController.PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(name = SignatureController.TIMEOUT_HEADER, required = false) String timeout
+    ) {
+        if (!coordinator) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        var request = Base64.getDecoder().decode(jsonDocuments);
+
+        var response = clusterSigningService.generateSignedDocuments(
+                request,
+                SignatureController.parsePriority(priority),
+                SignatureController.parseTimeout(timeout)
+        );
+        return ResponseEntity.ok(response);
+    }
+}
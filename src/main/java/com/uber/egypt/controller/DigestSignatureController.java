@@ -0,0 +1,42 @@
+package com.uber.egypt.controller;
+
+import com.uber.egypt.signature.DocumentSigningService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Signs digests of documents that were already canonicalized and hashed by the caller.
+ * <p>
+ * The request is {@code {"digests": ["<Base64 SHA-256>", ...]}} and the response is
+ * {@code {"signatures": ["<Base64 CAdES-BES>", ...]}} in the same order.
+ */
+@RestController
+@RequestMapping("/sign/digests")
+public class DigestSignatureController {
+    private final DocumentSigningService documentSigningService;
+
+    protected DigestSignatureController(DocumentSigningService documentSigningService) {
+        this.documentSigningService = documentSigningService;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> signDigests(
+            @RequestBody String jsonDigests,
+            @RequestHeader(name = SignatureController.PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(name = SignatureController.IDENTITY_HEADER, required = false) String identity,
+            @RequestHeader(name = SignatureController.TIMEOUT_HEADER, required = false) String timeout
+    ) {
+        var response = documentSigningService.generateDigestSignatures(
+                jsonDigests,
+                SignatureController.parsePriority(priority),
+                identity,
+                SignatureController.parseTimeout(timeout)
+        );
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,29 +1,200 @@
 package com.uber.egypt.controller;
 
 import com.uber.egypt.signature.DocumentSigningService;
+import com.uber.egypt.signature.ResponseMode;
+import com.uber.egypt.signature.SigningPriority;
+import com.uber.egypt.telemetry.AllocationAccounting;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/sign")
 public class SignatureController {
+    /**
+     * Selects the priority lane of a request, {@code interactive} or {@code bulk} (the default).
+     */
+    public static final String PRIORITY_HEADER = "X-Signing-Priority";
+    /**
+     * Selects what is returned for every document, {@code documents} (the default) or only
+     * {@code signatures}.
+     */
+    public static final String RESPONSE_MODE_HEADER = "X-Response-Mode";
+    /**
+     * Selects the legal entity the documents are signed for, by the alias of its key. Documents
+     * are signed for the configured default identity without it.
+     */
+    public static final String IDENTITY_HEADER = "X-Signing-Identity";
+    /**
+     * How long the client waits for the response, in milliseconds. Documents that are not signed
+     * by then are dropped and reported as error entries.
+     */
+    public static final String TIMEOUT_HEADER = "X-Signing-Timeout";
+    /**
+     * Names the calling service, e.g. {@code billing}, under which the allocations of its requests
+     * are published.
+     */
+    public static final String CLIENT_HEADER = "X-Signing-Client";
+    /**
+     * With {@code true}, the response reports the bytes allocated per document of every stage in
+     * the {@value #ALLOCATED_BYTES_HEADER} header.
+     */
+    public static final String DEBUG_ALLOCATIONS_HEADER = "X-Debug-Allocations";
+    public static final String ALLOCATED_BYTES_HEADER = "X-Allocated-Bytes-Per-Document";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final MediaType RESPONSE_TYPE = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
     private final DocumentSigningService documentSigningService;
+    private final AllocationAccounting allocationAccounting;
 
-    protected SignatureController(DocumentSigningService documentSigningService) {
+    protected SignatureController(DocumentSigningService documentSigningService, AllocationAccounting allocationAccounting) {
         this.documentSigningService = documentSigningService;
+        this.allocationAccounting = allocationAccounting;
     }
 
     @PostMapping
-    public ResponseEntity<String> signDocuments(@RequestBody String jsonDocuments) {
-        var request = new String(Base64.getDecoder().decode(jsonDocuments), StandardCharsets.UTF_8);
+    public ResponseEntity<byte[]> signDocuments(
+            @RequestBody byte[] jsonDocuments,
+            @RequestHeader(name = PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(name = RESPONSE_MODE_HEADER, required = false) String mode,
+            @RequestHeader(name = IDENTITY_HEADER, required = false) String identity,
+            @RequestHeader(name = TIMEOUT_HEADER, required = false) String timeout,
+            @RequestHeader(name = CLIENT_HEADER, required = false) String client,
+            @RequestHeader(name = DEBUG_ALLOCATIONS_HEADER, required = false) String debugAllocations
+    ) {
+        return signDocuments(
+                jsonDocuments,
+                parsePriority(priority),
+                parseResponseMode(mode),
+                identity,
+                parseTimeout(timeout),
+                client,
+                Boolean.parseBoolean(debugAllocations)
+        );
+    }
+
+    @PostMapping("/interactive")
+    public ResponseEntity<byte[]> signInteractiveDocuments(
+            @RequestBody byte[] jsonDocuments,
+            @RequestHeader(name = RESPONSE_MODE_HEADER, required = false) String mode,
+            @RequestHeader(name = IDENTITY_HEADER, required = false) String identity,
+            @RequestHeader(name = TIMEOUT_HEADER, required = false) String timeout,
+            @RequestHeader(name = CLIENT_HEADER, required = false) String client,
+            @RequestHeader(name = DEBUG_ALLOCATIONS_HEADER, required = false) String debugAllocations
+    ) {
+        return signDocuments(
+                jsonDocuments,
+                SigningPriority.INTERACTIVE,
+                parseResponseMode(mode),
+                identity,
+                parseTimeout(timeout),
+                client,
+                Boolean.parseBoolean(debugAllocations)
+        );
+    }
+
+    @PostMapping("/bulk")
+    public ResponseEntity<byte[]> signBulkDocuments(
+            @RequestBody byte[] jsonDocuments,
+            @RequestHeader(name = RESPONSE_MODE_HEADER, required = false) String mode,
+            @RequestHeader(name = IDENTITY_HEADER, required = false) String identity,
+            @RequestHeader(name = TIMEOUT_HEADER, required = false) String timeout,
+            @RequestHeader(name = CLIENT_HEADER, required = false) String client,
+            @RequestHeader(name = DEBUG_ALLOCATIONS_HEADER, required = false) String debugAllocations
+    ) {
+        return signDocuments(
+                jsonDocuments,
+                SigningPriority.BULK,
+                parseResponseMode(mode),
+                identity,
+                parseTimeout(timeout),
+                client,
+                Boolean.parseBoolean(debugAllocations)
+        );
+    }
+
+    /**
+     * Takes the same Base64 encoded envelope as {@link #signDocuments}, but signs the documents
+     * while the request is still being read and streams one signed document per line back.
+     */
+    @PostMapping(path = "/stream", produces = NDJSON)
+    public Flux<String> streamSignedDocuments(
+            InputStream jsonDocuments,
+            @RequestHeader(name = PRIORITY_HEADER, required = false) String priority,
+            @RequestHeader(name = RESPONSE_MODE_HEADER, required = false) String mode,
+            @RequestHeader(name = IDENTITY_HEADER, required = false) String identity,
+            @RequestHeader(name = TIMEOUT_HEADER, required = false) String timeout,
+            @RequestHeader(name = CLIENT_HEADER, required = false) String client
+    ) {
+        return documentSigningService.streamSignedDocuments(
+                jsonDocuments,
+                parsePriority(priority),
+                parseResponseMode(mode),
+                identity,
+                parseTimeout(timeout),
+                allocationAccounting.start(client)
+        );
+    }
+
+    static SigningPriority parsePriority(String priority) {
+        try {
+            return SigningPriority.fromHeader(priority);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown signing priority: " + priority);
+        }
+    }
+
+    static ResponseMode parseResponseMode(String mode) {
+        try {
+            return ResponseMode.fromHeader(mode);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown response mode: " + mode);
+        }
+    }
+
+    static Duration parseTimeout(String timeout) {
+        if (timeout == null || timeout.isBlank()) {
+            return null;
+        }
+        long timeoutMillis;
+        try {
+            timeoutMillis = Long.parseLong(timeout.trim());
+        } catch (NumberFormatException e) {
+            timeoutMillis = 0;
+        }
+        if (timeoutMillis <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid signing timeout: " + timeout);
+        }
+        return Duration.ofMillis(timeoutMillis);
+    }
 
-        var response = documentSigningService.generateSignedDocuments(request);
-        return ResponseEntity.ok(response);
+    // The body is decoded from Base64 by the signing service, within the request decode stage,
+    // straight into the UTF-8 bytes of the request, which are never turned into a String.
+    private ResponseEntity<byte[]> signDocuments(
+            byte[] jsonDocuments,
+            SigningPriority priority,
+            ResponseMode mode,
+            String identity,
+            Duration timeout,
+            String client,
+            boolean debugAllocations
+    ) {
+        var allocations = allocationAccounting.start(client);
+        var response = documentSigningService.generateSignedEncodedDocuments(jsonDocuments, priority, mode, identity, timeout, allocations);
+        var ok = ResponseEntity.ok().contentType(RESPONSE_TYPE);
+        if (debugAllocations && allocations.isEnabled()) {
+            ok.header(ALLOCATED_BYTES_HEADER, allocations.describeBytesPerDocument());
+        }
+        return ok.body(response);
     }
 }
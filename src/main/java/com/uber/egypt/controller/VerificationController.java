@@ -0,0 +1,29 @@
+package com.uber.egypt.controller;
+
+import com.uber.egypt.signature.DocumentVerificationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@RestController
+@RequestMapping("/verify")
+public class VerificationController {
+    private final DocumentVerificationService documentVerificationService;
+
+    protected VerificationController(DocumentVerificationService documentVerificationService) {
+        this.documentVerificationService = documentVerificationService;
+    }
+
+    @PostMapping
+    public ResponseEntity<String> verifyDocuments(@RequestBody String jsonDocuments) {
+        var request = new String(Base64.getDecoder().decode(jsonDocuments), StandardCharsets.UTF_8);
+
+        var response = documentVerificationService.verifySignedDocuments(request);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,132 @@
+package com.uber.egypt.document;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The canonical form of the sub-objects that repeat across the documents of one batch, e.g. the
+ * issuer of a batch from one issuer, so that they are canonicalized once per batch rather than
+ * once per document. A cache is shared by the workers signing the documents of a batch, and
+ * dropped with the batch.
+ * <p>
+ * A fragment is looked up by a structural hash of its subtree, and only reused if the subtree is
+ * structurally equal to the one it was computed from: the same property names in the same order,
+ * and the same values as the canonical format sees them. Structurally equal subtrees have the
+ * same canonical form, so the output is byte for byte the same as without the cache.
+ * <p>
+ * Looking a fragment up walks its subtree, which only pays off if it is found. A property whose
+ * fragments are mostly not found, e.g. the receiver of a batch of receipts, is no longer cached
+ * for the rest of the batch.
+ */
+public class CanonicalFragmentCache {
+    private static final int MAX_FRAGMENTS_PER_PROPERTY = 32;
+    private static final int MIN_LOOKUPS_BEFORE_GIVING_UP = 64;
+    private static final int NULL_HASH = 0x5bd1e995;
+    private final Map<String, PropertyFragments> properties = new ConcurrentHashMap<>();
+
+    /**
+     * The canonical form of the value of the given property, computed by the canonicalizer unless
+     * a structurally equal value was seen before. Returns null if the property is not worth
+     * caching in this batch, in which case the caller canonicalizes the value itself.
+     */
+    byte[] get(String propertyName, JsonElement value, Supplier<byte[]> canonicalizer) {
+        var fragments = properties.computeIfAbsent(propertyName, name -> new PropertyFragments());
+        if (fragments.disabled) {
+            return null;
+        }
+        var lookups = fragments.lookups.incrementAndGet();
+        var hash = structuralHash(value);
+        var fragment = fragments.byHash.get(hash);
+        if (fragment != null && structurallyEqual(fragment.value(), value)) {
+            fragments.hits.incrementAndGet();
+            return fragment.canonical();
+        }
+        if (lookups >= MIN_LOOKUPS_BEFORE_GIVING_UP && fragments.hits.get() * 2 < lookups) {
+            fragments.disabled = true;
+        }
+        var canonical = canonicalizer.get();
+        if (fragment == null && fragments.byHash.size() < MAX_FRAGMENTS_PER_PROPERTY) {
+            fragments.byHash.putIfAbsent(hash, new Fragment(value, canonical));
+        }
+        return canonical;
+    }
+
+    // Order sensitive, since the canonical form follows the order of the properties. Primitives
+    // are hashed by their string form, since that is all the canonical form keeps of them.
+    static int structuralHash(JsonElement element) {
+        if (element.isJsonNull()) {
+            return NULL_HASH;
+        } else if (element.isJsonPrimitive()) {
+            return element.getAsString().hashCode();
+        } else if (element.isJsonArray()) {
+            int hash = 1;
+            for (JsonElement item : element.getAsJsonArray()) {
+                hash = 31 * hash + structuralHash(item);
+            }
+            return hash;
+        }
+        int hash = 2;
+        for (Map.Entry<String, JsonElement> property : element.getAsJsonObject().entrySet()) {
+            hash = 31 * hash + property.getKey().hashCode();
+            hash = 31 * hash + structuralHash(property.getValue());
+        }
+        return hash;
+    }
+
+    static boolean structurallyEqual(JsonElement first, JsonElement second) {
+        if (first.isJsonNull() || second.isJsonNull()) {
+            return first.isJsonNull() && second.isJsonNull();
+        } else if (first.isJsonPrimitive() || second.isJsonPrimitive()) {
+            return first.isJsonPrimitive() && second.isJsonPrimitive()
+                    && first.getAsString().equals(second.getAsString());
+        } else if (first.isJsonArray() || second.isJsonArray()) {
+            return first.isJsonArray() && second.isJsonArray()
+                    && structurallyEqual(first.getAsJsonArray(), second.getAsJsonArray());
+        }
+        return structurallyEqual(first.getAsJsonObject(), second.getAsJsonObject());
+    }
+
+    private static boolean structurallyEqual(JsonArray first, JsonArray second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int index = 0; index < first.size(); index++) {
+            if (!structurallyEqual(first.get(index), second.get(index))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean structurallyEqual(JsonObject first, JsonObject second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, JsonElement>> secondProperties = second.entrySet().iterator();
+        for (Map.Entry<String, JsonElement> firstProperty : first.entrySet()) {
+            var secondProperty = secondProperties.next();
+            if (!firstProperty.getKey().equals(secondProperty.getKey())
+                    || !structurallyEqual(firstProperty.getValue(), secondProperty.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Fragment(JsonElement value, byte[] canonical) {
+    }
+
+    private static class PropertyFragments {
+        private final Map<Integer, Fragment> byHash = new ConcurrentHashMap<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+        private final AtomicInteger hits = new AtomicInteger();
+        private volatile boolean disabled;
+    }
+}
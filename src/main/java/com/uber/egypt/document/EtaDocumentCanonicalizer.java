@@ -0,0 +1,175 @@
+package com.uber.egypt.document;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Transforms documents to the canonical format of the Egyptian Tax Authority (ETA), like
+ * {@link JsonUtils#canonicalizeToUtf8(JsonElement)}, but specialized to the fields of ETA
+ * documents.
+ * <p>
+ * The canonical name of every field of the ETA document structure, upper-cased, quoted and
+ * UTF-8 encoded, is computed once, so that canonicalizing a known field costs a map lookup
+ * instead of upper-casing, concatenating and encoding its name again for every occurrence.
+ * Fields outside of the structure take the generic path, so the output is the same as
+ * {@link JsonUtils} for any document.
+ * <p>
+ * Given a {@link CanonicalFragmentCache}, the properties that usually repeat across the documents
+ * of a batch are canonicalized once per batch.
+ *
+ * @see <a href="https://sdk.invoicing.eta.gov.eg/documents/invoice-v1-0/">The ETA invoice structure</a>
+ */
+public class EtaDocumentCanonicalizer {
+    private static final List<String> ETA_PROPERTY_NAMES = List.of(
+            // Document.
+            "issuer", "receiver", "documentType", "documentTypeVersion", "dateTimeIssued",
+            "taxpayerActivityCode", "internalID", "purchaseOrderReference", "purchaseOrderDescription",
+            "salesOrderReference", "salesOrderDescription", "proformaInvoiceNumber", "payment", "delivery",
+            "invoiceLines", "totalDiscountAmount", "totalSalesAmount", "netAmount", "taxTotals", "totalAmount",
+            "extraDiscountAmount", "totalItemsDiscountAmount", "references", "serviceDeliveryDate", "signatures",
+            // Issuer and receiver.
+            "address", "type", "id", "name",
+            // Address.
+            "branchID", "country", "governate", "regionCity", "street", "buildingNumber", "postalCode", "floor",
+            "room", "landmark", "additionalInformation",
+            // Payment.
+            "bankName", "bankAddress", "bankAccountNo", "bankAccountIBAN", "swiftCode", "terms",
+            // Delivery.
+            "approach", "packaging", "dateValidity", "exportPort", "countryOfOrigin", "grossWeight", "netWeight",
+            // Invoice line.
+            "description", "itemType", "itemCode", "unitType", "quantity", "internalCode", "salesTotal", "total",
+            "valueDifference", "totalTaxableFees", "netTotal", "itemsDiscount", "unitValue", "discount",
+            "taxableItems", "weightUnit", "weightQuantity",
+            // Unit value.
+            "currencySold", "amountEGP", "amountSold", "currencyExchangeRate",
+            // Discount, taxable item and tax total.
+            "rate", "amount", "taxType", "subType",
+            // Signature.
+            "signatureType", "value"
+    );
+    // Properties that are often the same in every document of a batch from one issuer.
+    private static final Set<String> REPEATED_PROPERTY_NAMES = Set.of(
+            "issuer", "receiver", "payment", "delivery", "unitValue", "taxableItems"
+    );
+    private static final Map<String, PropertyName> CANONICAL_PROPERTY_NAMES = buildCanonicalPropertyNames();
+    private static final byte[] NO_PROPERTY_NAME = quote("");
+
+    private EtaDocumentCanonicalizer() {
+    }
+
+    /**
+     * Transforms an already parsed document to the UTF-8 encoding of its canonical format.
+     */
+    public static byte[] canonicalizeToUtf8(JsonElement document) {
+        return canonicalizeToUtf8(document, null);
+    }
+
+    /**
+     * Transforms an already parsed document of a batch to the UTF-8 encoding of its canonical
+     * format, reusing the canonical form of the sub-objects it shares with earlier documents of
+     * the batch.
+     */
+    public static byte[] canonicalizeToUtf8(JsonElement document, CanonicalFragmentCache cache) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        dispatchToCanonicalize(document, NO_PROPERTY_NAME, cache, result);
+        return result.toByteArray();
+    }
+
+    private static Map<String, PropertyName> buildCanonicalPropertyNames() {
+        Map<String, PropertyName> canonicalPropertyNames = new HashMap<>();
+        for (String propertyName : ETA_PROPERTY_NAMES) {
+            canonicalPropertyNames.put(
+                    propertyName,
+                    new PropertyName(quote(propertyName.toUpperCase()), REPEATED_PROPERTY_NAMES.contains(propertyName))
+            );
+        }
+        return canonicalPropertyNames;
+    }
+
+    private static void dispatchToCanonicalize(
+            JsonElement jsonElement,
+            byte[] propertyName,
+            CanonicalFragmentCache cache,
+            ByteArrayOutputStream result
+    ) {
+        if (jsonElement.isJsonNull()) {
+            return;
+        } else if (jsonElement.isJsonPrimitive()) {
+            canonicalizeJsonPrimitive(jsonElement.getAsJsonPrimitive(), result);
+        } else if (jsonElement.isJsonArray()) {
+            canonicalizeJsonArray(jsonElement.getAsJsonArray(), propertyName, cache, result);
+        } else if (jsonElement.isJsonObject()) {
+            canonicalizeJsonObject(jsonElement.getAsJsonObject(), cache, result);
+        } else {
+            throw new JsonSyntaxException(
+                    jsonElement + " is not a valid JsonElement"
+            );
+        }
+    }
+
+    // Base case.
+    private static PropertyName canonicalizeJsonPropertyName(String propertyName) {
+        PropertyName canonicalPropertyName = CANONICAL_PROPERTY_NAMES.get(propertyName);
+        return canonicalPropertyName != null ? canonicalPropertyName : new PropertyName(quote(propertyName.toUpperCase()), false);
+    }
+
+    // Base case.
+    private static void canonicalizeJsonPrimitive(JsonPrimitive jsonPrimitive, ByteArrayOutputStream result) {
+        result.write('"');
+        result.writeBytes(jsonPrimitive.getAsString().getBytes(StandardCharsets.UTF_8));
+        result.write('"');
+    }
+
+    // Recursive step. Every element is preceded by the name of the array.
+    private static void canonicalizeJsonArray(
+            JsonArray jsonArray,
+            byte[] propertyName,
+            CanonicalFragmentCache cache,
+            ByteArrayOutputStream result
+    ) {
+        for (JsonElement jsonElement : jsonArray) {
+            result.writeBytes(propertyName);
+            dispatchToCanonicalize(jsonElement, NO_PROPERTY_NAME, cache, result);
+        }
+    }
+
+    // Recursive step. The value of a repeated property is taken from the cache if possible.
+    private static void canonicalizeJsonObject(JsonObject jsonObject, CanonicalFragmentCache cache, ByteArrayOutputStream result) {
+        for (Map.Entry<String, JsonElement> property : jsonObject.entrySet()) {
+            PropertyName propertyName = canonicalizeJsonPropertyName(property.getKey());
+            result.writeBytes(propertyName.canonical());
+            var value = property.getValue();
+            var fragment = cache != null && propertyName.repeated()
+                    ? cache.get(property.getKey(), value, () -> canonicalizeFragment(value, propertyName.canonical(), cache))
+                    : null;
+            if (fragment != null) {
+                result.writeBytes(fragment);
+            } else {
+                dispatchToCanonicalize(value, propertyName.canonical(), cache, result);
+            }
+        }
+    }
+
+    private static byte[] canonicalizeFragment(JsonElement value, byte[] propertyName, CanonicalFragmentCache cache) {
+        ByteArrayOutputStream fragment = new ByteArrayOutputStream();
+        dispatchToCanonicalize(value, propertyName, cache, fragment);
+        return fragment.toByteArray();
+    }
+
+    private static byte[] quote(String value) {
+        return ("\"" + value + "\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record PropertyName(byte[] canonical, boolean repeated) {
+    }
+}
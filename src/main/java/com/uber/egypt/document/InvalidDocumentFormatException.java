@@ -5,4 +5,8 @@ public class InvalidDocumentFormatException extends RuntimeException {
     public InvalidDocumentFormatException(Exception e) {
         super(e);
     }
+
+    public InvalidDocumentFormatException(String message) {
+        super(message);
+    }
 }
@@ -2,7 +2,11 @@ package com.uber.egypt.document;
 
 import com.google.gson.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 
 public class JsonUtils {
 
@@ -16,16 +20,57 @@ public class JsonUtils {
      */
     public static String canonicalize(String document) {
         JsonElement documentAsJson = convertToJson(document);
-        return dispatchToCanonicalize(documentAsJson);
+        return canonicalize(documentAsJson);
+    }
+
+    /**
+     * Transforms an already parsed document to the canonical format, see
+     * {@link #canonicalize(String)}.
+     */
+    public static String canonicalize(JsonElement document) {
+        return new String(canonicalizeToUtf8(document), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Transforms an already parsed document to the UTF-8 encoding of its canonical format, which
+     * is what gets hashed and signed, without building the canonical form as a String first.
+     */
+    public static byte[] canonicalizeToUtf8(JsonElement document) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        dispatchToCanonicalize(document, "", result);
+        return result.toByteArray();
+    }
+
+    /**
+     * Parses a single document from its UTF-8 encoding.
+     */
+    public static JsonElement parse(byte[] document) {
+        TypeAdapter<JsonElement> strictAdapter = new Gson()
+                .getAdapter(JsonElement.class);
+        try {
+            return strictAdapter.fromJson(new InputStreamReader(new ByteArrayInputStream(document), StandardCharsets.UTF_8));
+        } catch (JsonParseException | IOException e) {
+            throw new InvalidDocumentFormatException(e);
+        }
     }
 
     public static String merge(String document, String signature) {
-        JsonObject result = new Gson().fromJson(document, JsonObject.class);
+        return merge(convertToJson(document), signature).toString();
+    }
+
+    /**
+     * Appends the signature to an already parsed document, in place.
+     */
+    public static JsonObject merge(JsonElement document, String signature) {
+        if (!document.isJsonObject()) {
+            throw new InvalidDocumentFormatException("A document must be a JSON object");
+        }
+        JsonObject result = document.getAsJsonObject();
         JsonArray signatures = new JsonArray();
         signatures.add(buildIssuerTypeSignature(signature));
 
         result.add("signatures", signatures);
-        return result.toString();
+        return result;
     }
 
     private static JsonElement convertToJson(String json) {
@@ -38,19 +83,15 @@ public class JsonUtils {
         }
     }
 
-    private static String dispatchToCanonicalize(JsonElement jsonElement) {
-        return dispatchToCanonicalize(jsonElement, "");
-    }
-
-    private static String dispatchToCanonicalize(JsonElement jsonElement, String key) {
+    private static void dispatchToCanonicalize(JsonElement jsonElement, String key, ByteArrayOutputStream result) {
         if (jsonElement.isJsonNull()) {
-            return "";
+            return;
         } else if (jsonElement.isJsonPrimitive()) {
-            return canonicalizeJsonPrimitive(jsonElement.getAsJsonPrimitive());
+            canonicalizeJsonPrimitive(jsonElement.getAsJsonPrimitive(), result);
         } else if (jsonElement.isJsonArray()) {
-            return canonicalizeJsonArray(jsonElement.getAsJsonArray(), key);
+            canonicalizeJsonArray(jsonElement.getAsJsonArray(), key, result);
         } else if (jsonElement.isJsonObject()) {
-            return canonicalizeJsonObject(jsonElement.getAsJsonObject());
+            canonicalizeJsonObject(jsonElement.getAsJsonObject(), result);
         } else {
             throw new JsonSyntaxException(
                     jsonElement + " is not a valid JsonElement"
@@ -59,35 +100,36 @@ public class JsonUtils {
     }
 
     // Base case.
-    private static String canonicalizeJsonPropertyName(String propertyName) {
-        return "\"" + propertyName.toUpperCase() + "\"";
+    private static void canonicalizeJsonPropertyName(String propertyName, ByteArrayOutputStream result) {
+        writeQuoted(propertyName.toUpperCase(), result);
     }
 
     // Base case.
-    private static String canonicalizeJsonPrimitive(JsonPrimitive jsonPrimitive) {
-        return "\"" + jsonPrimitive.getAsString() + "\"";
+    private static void canonicalizeJsonPrimitive(JsonPrimitive jsonPrimitive, ByteArrayOutputStream result) {
+        writeQuoted(jsonPrimitive.getAsString(), result);
     }
 
     // Recursive step.
-    private static String canonicalizeJsonArray(JsonArray jsonArray, String key) {
-        StringBuilder result = new StringBuilder();
+    private static void canonicalizeJsonArray(JsonArray jsonArray, String key, ByteArrayOutputStream result) {
         for (JsonElement jsonElement : jsonArray) {
-            result.append(canonicalizeJsonPropertyName(key));
-            result.append(dispatchToCanonicalize(jsonElement));
+            canonicalizeJsonPropertyName(key, result);
+            dispatchToCanonicalize(jsonElement, "", result);
         }
-        return result.toString();
     }
 
     // Recursive step.
-    private static String canonicalizeJsonObject(JsonObject jsonObject) {
-        StringBuilder result = new StringBuilder();
+    private static void canonicalizeJsonObject(JsonObject jsonObject, ByteArrayOutputStream result) {
         for (String key : jsonObject.keySet()) {
             JsonElement jsonElement = jsonObject.get(key);
-            String canonicalizedElement = dispatchToCanonicalize(jsonElement, key);
-            result.append(canonicalizeJsonPropertyName(key));
-            result.append(canonicalizedElement);
+            canonicalizeJsonPropertyName(key, result);
+            dispatchToCanonicalize(jsonElement, key, result);
         }
-        return result.toString();
+    }
+
+    private static void writeQuoted(String value, ByteArrayOutputStream result) {
+        result.write('"');
+        result.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        result.write('"');
     }
 
     private static JsonObject buildIssuerTypeSignature(String signature) {
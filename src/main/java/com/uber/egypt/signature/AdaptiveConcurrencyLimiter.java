@@ -0,0 +1,124 @@
+package com.uber.egypt.signature;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent calls to the token and adapts the limit to the measured latency,
+ * in AIMD style.
+ * <p>
+ * The fastest latency seen is taken as the latency of an unloaded token. A call slower than a
+ * multiple of it, or a failed call, means the token is queueing internally, so the limit is cut
+ * by a constant ratio, at most once per window: only calls allowed after the last cut can cut it
+ * again, since the calls in flight at that cut all saw the same congestion. A call within the tolerance that ran while the limit was in full use adds
+ * one call to the limit per limit calls. The baseline slowly drifts up, so that it follows the
+ * token when its firmware or USB topology changes.
+ */
+class AdaptiveConcurrencyLimiter {
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int BASELINE_WINDOW = 500;
+    private static final double BASELINE_DRIFT = 1.01;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    // Written under the lock, but read without it by the metrics.
+    private volatile double limit;
+    private int inFlight;
+    private long acquisitions;
+    private long acquisitionsAtLastBackoff;
+    private long noLoadLatencyNanos = Long.MAX_VALUE;
+    private int samplesInWindow;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limits [" + minLimit + ", " + maxLimit + "]");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Waits until a call is allowed and returns its permit, to be passed back to {@link #release}.
+     */
+    Permit acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= getLimit()) {
+                permitAvailable.awaitUninterruptibly();
+            }
+            return new Permit(++inFlight, ++acquisitions);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(Permit permit, long latencyNanos, boolean succeeded) {
+        lock.lock();
+        try {
+            inFlight--;
+            onSample(permit, latencyNanos, succeeded);
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a call that was allowed but not made, without taking it as a sample.
+     */
+    void cancel() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSample(Permit permit, long latencyNanos, boolean succeeded) {
+        if (succeeded) {
+            updateBaseline(latencyNanos);
+        }
+        if (!succeeded || latencyNanos > noLoadLatencyNanos * LATENCY_TOLERANCE) {
+            if (permit.acquisition() > acquisitionsAtLastBackoff) {
+                acquisitionsAtLastBackoff = acquisitions;
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            }
+        } else if (permit.inFlight() >= getLimit()) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private void updateBaseline(long latencyNanos) {
+        noLoadLatencyNanos = Math.min(noLoadLatencyNanos, latencyNanos);
+        if (++samplesInWindow >= BASELINE_WINDOW) {
+            samplesInWindow = 0;
+            noLoadLatencyNanos = (long) (noLoadLatencyNanos * BASELINE_DRIFT);
+        }
+    }
+
+    /**
+     * A call that was allowed, with the number of calls in flight when it was allowed and the
+     * order in which it was allowed.
+     */
+    record Permit(int inFlight, long acquisition) {
+    }
+}
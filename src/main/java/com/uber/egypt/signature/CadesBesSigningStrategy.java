@@ -3,103 +3,372 @@ package com.uber.egypt.signature;
 import org.bouncycastle.asn1.*;
 import org.bouncycastle.asn1.cms.Attribute;
 import org.bouncycastle.asn1.cms.AttributeTable;
-import org.bouncycastle.asn1.ess.ESSCertIDv2;
-import org.bouncycastle.asn1.ess.SigningCertificateV2;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
-import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cms.*;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.telemetry.SigningContext;
+import com.uber.egypt.telemetry.TokenSignEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.PrivateKey;
 import java.security.Provider;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
 
 @Component
 public class CadesBesSigningStrategy {
     private static final Provider DIGEST_PROVIDER = new BouncyCastleProvider();
     private static final String DIGEST_ALGORITHM = "SHA-256";
     private static final String SIGNATURE_ALGORITHM = "SHA256withRSAEncryption";
+    private static final int DIGEST_LENGTH = 32;
+    private static final double DEFAULT_BULK_MINIMUM_SHARE = 0.2;
+    private static final int MIN_TOKEN_CONCURRENCY = 1;
+    private static final int DEFAULT_MAX_TOKEN_CONCURRENCY_PER_WORKER = 2;
+    private static final String DEFAULT_IDENTITY_NAME = "default";
+    private static final SigningDeadline NO_DEADLINE = SigningDeadline.never();
     private final Provider signatureProvider;
-    private final PrivateKey signingKey;
-    private final X509Certificate signingCert;
+    private final SigningIdentity defaultIdentity;
+    private final Map<String, SigningIdentity> identities;
+    private final int workerCount;
+    private final PrioritySigningScheduler workers;
+    private final AdaptiveConcurrencyLimiter tokenConcurrencyLimiter;
+    private final LongAdder completedSignatures = new LongAdder();
+    private final LongAdder tokenCalls = new LongAdder();
+    private final LongAdder tokenNanos = new LongAdder();
+    private final LongAdder droppedDocuments = new LongAdder();
+    private final LongAdder savedTokenNanos = new LongAdder();
 
-    public CadesBesSigningStrategy(HardwareTokenSecurityFactory hardwareTokenSecurityFactory) {
-        this.signatureProvider = hardwareTokenSecurityFactory.getProvider();
-        this.signingKey = hardwareTokenSecurityFactory.getPrivateKey();
-        this.signingCert = hardwareTokenSecurityFactory.getCertificate();
+    public CadesBesSigningStrategy(SigningKeySource signingKeySource) {
+        this(signingKeySource, null);
+    }
+
+    @Autowired
+    public CadesBesSigningStrategy(SigningKeySource signingKeySource, FileConfigurationReader configurationReader) {
+        this.signatureProvider = signingKeySource.getProvider();
+        this.defaultIdentity = new SigningIdentity(
+                DEFAULT_IDENTITY_NAME,
+                signingKeySource.getPrivateKey(),
+                signingKeySource.getCertificate()
+        );
+        this.identities = buildIdentities(signingKeySource);
+        var configuredWorkers = configurationReader == null ? null : configurationReader.getSigningWorkers();
+        var initialTokenConcurrency = configuredWorkers != null ? configuredWorkers : defaultWorkerCount(signingKeySource);
+        var adaptiveConcurrency = configurationReader == null || configurationReader.isAdaptiveConcurrencyEnabled();
+        var maxTokenConcurrency = adaptiveConcurrency
+                ? maxTokenConcurrency(configurationReader, initialTokenConcurrency)
+                : initialTokenConcurrency;
+        // Every token call is made by a worker, so there are as many workers as the limit may
+        // grow to, but only as many as the current limit take documents.
+        this.workerCount = maxTokenConcurrency;
+        var bulkMinimumShare = configurationReader == null ? DEFAULT_BULK_MINIMUM_SHARE : configurationReader.getBulkMinimumShare();
+        this.workers = new PrioritySigningScheduler(workerCount, bulkMinimumShare);
+        this.tokenConcurrencyLimiter = adaptiveConcurrency
+                ? new AdaptiveConcurrencyLimiter(initialTokenConcurrency, MIN_TOKEN_CONCURRENCY, maxTokenConcurrency)
+                : new AdaptiveConcurrencyLimiter(initialTokenConcurrency, initialTokenConcurrency, initialTokenConcurrency);
+        this.workers.setActiveWorkerLimit(tokenConcurrencyLimiter.getLimit());
+    }
+
+    /**
+     * The executor on which documents of the given priority are signed. A hardware token keeps the
+     * parallelism the signer always had, whereas a software keystore lets RSA signing use every
+     * core. Interactive documents are taken first, while bulk documents keep a minimum share.
+     */
+    public Executor getWorkers(SigningPriority priority) {
+        return workers.getExecutor(priority);
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * The number of documents waiting for or being signed by a worker.
+     */
+    public int getQueueDepth() {
+        return workers.getQueueDepth(SigningPriority.INTERACTIVE)
+                + workers.getQueueDepth(SigningPriority.BULK)
+                + workers.getActiveWorkers();
+    }
+
+    public int getQueueDepth(SigningPriority priority) {
+        return workers.getQueueDepth(priority);
+    }
+
+    /**
+     * The number of token calls currently allowed to run concurrently.
+     */
+    public int getTokenConcurrencyLimit() {
+        return tokenConcurrencyLimiter.getLimit();
+    }
+
+    public int getTokenCallsInFlight() {
+        return tokenConcurrencyLimiter.getInFlight();
+    }
+
+    public long getCompletedSignatureCount() {
+        return completedSignatures.sum();
+    }
+
+    /**
+     * The number of documents that were not signed because their request passed its deadline or
+     * was abandoned.
+     */
+    public long getDroppedDocumentCount() {
+        return droppedDocuments.sum();
+    }
+
+    /**
+     * The token time not spent on dropped documents, estimated from the mean time of a token call.
+     */
+    public double getSavedTokenSeconds() {
+        return savedTokenNanos.sum() / 1e9;
+    }
+
+    /**
+     * Drops the document being worked on if its request passed its deadline or was abandoned, by
+     * throwing a {@link DeadlineExceededException}.
+     */
+    public void checkDeadline(SigningDeadline deadline) {
+        if (!deadline.isExpired()) {
+            return;
+        }
+        droppedDocuments.increment();
+        var calls = tokenCalls.sum();
+        if (calls > 0) {
+            savedTokenNanos.add(tokenNanos.sum() / calls);
+        }
+        throw new DeadlineExceededException();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    /**
+     * The identity with the given name, or the default identity if no name is given. Callers
+     * resolve the identity once per request and pass it to every signature of the request.
+     */
+    public SigningIdentity getIdentity(String name) {
+        if (name == null || name.isBlank()) {
+            return defaultIdentity;
+        }
+        var identity = identities.get(name.trim());
+        if (identity == null) {
+            throw new UnknownSigningIdentityException(name);
+        }
+        return identity;
+    }
+
+    public Set<String> getIdentityNames() {
+        return identities.keySet();
     }
 
     public String sign(String data) {
+        return sign(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Signs the UTF-8 encoding of a canonicalized document.
+     */
+    public String sign(byte[] data) {
+        return sign(data, defaultIdentity);
+    }
+
+    public String sign(byte[] data, SigningIdentity identity) {
+        return sign(data, identity, NO_DEADLINE);
+    }
+
+    public String sign(byte[] data, SigningIdentity identity, SigningDeadline deadline) {
+        try {
+            return signDigest(digest(data), identity, deadline);
+        } catch (NoSuchAlgorithmException e) {
+            throw new SignatureException(e);
+        }
+    }
+
+    /**
+     * Signs the SHA-256 digest of a canonicalized document, for callers that canonicalize and hash
+     * the document themselves.
+     */
+    public String signDigest(byte[] digest) {
+        return signDigest(digest, defaultIdentity);
+    }
+
+    public String signDigest(byte[] digest, SigningIdentity identity) {
+        return signDigest(digest, identity, NO_DEADLINE);
+    }
+
+    /**
+     * Signs a digest unless its request passed its deadline or was abandoned, which is checked
+     * again right before the token is called, and once more when the token is free.
+     */
+    public String signDigest(byte[] digest, SigningIdentity identity, SigningDeadline deadline) {
+        if (digest.length != DIGEST_LENGTH) {
+            throw new InvalidDigestException(digest.length);
+        }
+        checkDeadline(deadline);
         CMSSignedData signedData;
         try {
-            signedData = buildCMSSignedData(data.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(signedData.getEncoded());
+            signedData = buildCMSSignedDataFromDigest(digest, identity, deadline);
+            var signature = Base64.getEncoder().encodeToString(signedData.getEncoded());
+            completedSignatures.increment();
+            return signature;
+        } catch (DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             throw new SignatureException(e);
         }
     }
 
     public CMSSignedData buildCMSSignedData(byte[] msg) throws CertificateEncodingException, NoSuchAlgorithmException, OperatorCreationException, IOException, CMSException {
-        var signedDataGenerator = buildCMSSignedDataGenerator(msg);
-        var cmsTypedData = new CMSProcessableByteArray(PKCSObjectIdentifiers.digestedData, msg);
+        return buildCMSSignedDataFromDigest(digest(msg), defaultIdentity, NO_DEADLINE);
+    }
+
+    // The signature is detached and the messageDigest attribute is supplied, so the generator is
+    // given no content to hash again.
+    private CMSSignedData buildCMSSignedDataFromDigest(byte[] digest, SigningIdentity identity, SigningDeadline deadline) throws CertificateEncodingException, NoSuchAlgorithmException, OperatorCreationException, IOException, CMSException {
+        var signedDataGenerator = buildCMSSignedDataGenerator(digest, identity, deadline);
+        var cmsTypedData = new CMSProcessableByteArray(PKCSObjectIdentifiers.digestedData, new byte[0]);
         return signedDataGenerator.generate(cmsTypedData, false);
     }
 
-    private CMSSignedDataGenerator buildCMSSignedDataGenerator(byte[] msg) throws CertificateEncodingException, OperatorCreationException, NoSuchAlgorithmException, IOException, CMSException {
-        var signerInfoGenerator = buildSignerInfoGenerator(msg);
+    private CMSSignedDataGenerator buildCMSSignedDataGenerator(byte[] digest, SigningIdentity identity, SigningDeadline deadline) throws CertificateEncodingException, OperatorCreationException, NoSuchAlgorithmException, IOException, CMSException {
+        var signerInfoGenerator = buildSignerInfoGenerator(digest, identity, deadline);
         var signedDataGenerator = new CMSSignedDataGenerator();
         signedDataGenerator.addSignerInfoGenerator(signerInfoGenerator);
-        signedDataGenerator.addCertificate(new X509CertificateHolder(signingCert.getEncoded()));
+        signedDataGenerator.addCertificate(identity.getCertificate());
         return signedDataGenerator;
     }
 
-    private SignerInfoGenerator buildSignerInfoGenerator(byte[] msg) throws CertificateEncodingException, NoSuchAlgorithmException, OperatorCreationException, IOException {
-        var signedAttributesTable = buildSignedAttributeTable(msg);
+    private SignerInfoGenerator buildSignerInfoGenerator(byte[] digest, SigningIdentity identity, SigningDeadline deadline) throws CertificateEncodingException, NoSuchAlgorithmException, OperatorCreationException, IOException {
+        var signedAttributesTable = buildSignedAttributeTable(digest, identity);
 
         var signedAttributeGenerator = new DefaultSignedAttributeTableGenerator(signedAttributesTable);
 
-        var contentSigner = new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).setProvider(signatureProvider).build(signingKey);
+        var contentSigner = new TokenContentSigner(
+                new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).setProvider(signatureProvider).build(identity.getPrivateKey()),
+                deadline
+        );
 
         var digestCalcProvider = new JcaDigestCalculatorProviderBuilder().setProvider(DIGEST_PROVIDER).build();
-        return new SignerInfoGeneratorBuilder(digestCalcProvider).setSignedAttributeGenerator(signedAttributeGenerator).setUnsignedAttributeGenerator(null).build(contentSigner, new X509CertificateHolder(signingCert.getEncoded()));
+        return new SignerInfoGeneratorBuilder(digestCalcProvider).setSignedAttributeGenerator(signedAttributeGenerator).setUnsignedAttributeGenerator(null).build(contentSigner, identity.getCertificate());
     }
 
-    private AttributeTable buildSignedAttributeTable(byte[] msg) throws NoSuchAlgorithmException, CertificateEncodingException {
+    private AttributeTable buildSignedAttributeTable(byte[] digest, SigningIdentity identity) {
         var signedAttributes = new ASN1EncodableVector();
-        signedAttributes.add(buildMessageDigestAttribute(msg));
-        signedAttributes.add(buildSigningCertificateV2Attribute());
+        signedAttributes.add(buildMessageDigestAttribute(digest));
+        signedAttributes.add(identity.getSigningCertificateV2Attribute());
         return new AttributeTable(signedAttributes);
     }
 
-    private ASN1Encodable buildMessageDigestAttribute(byte[] msg) throws NoSuchAlgorithmException {
-        var digester = MessageDigest.getInstance(DIGEST_ALGORITHM);
-        var digest = digester.digest(msg);
+    private ASN1Encodable buildMessageDigestAttribute(byte[] digest) {
         var attributeIdentifier = ASN1ObjectIdentifier.getInstance(PKCSObjectIdentifiers.pkcs_9_at_messageDigest);
         var attributeValue = new DERSet(new DEROctetString(digest));
         return new Attribute(attributeIdentifier, attributeValue);
     }
 
-    private Attribute buildSigningCertificateV2Attribute() throws CertificateEncodingException, NoSuchAlgorithmException {
-        var digester = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    private static byte[] digest(byte[] msg) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(msg);
+    }
 
-        var attributeIdentifier = ASN1ObjectIdentifier.getInstance(PKCSObjectIdentifiers.id_aa_signingCertificateV2);
-        var essCert = new ESSCertIDv2(new AlgorithmIdentifier(attributeIdentifier), digester.digest(signingCert.getEncoded()));
+    private static Map<String, SigningIdentity> buildIdentities(SigningKeySource signingKeySource) {
+        Map<String, SigningIdentity> identities = new HashMap<>();
+        signingKeySource.getIdentities().forEach((name, entry) -> identities.put(
+                name,
+                new SigningIdentity(name, entry.getPrivateKey(), (X509Certificate) entry.getCertificate())
+        ));
+        return Map.copyOf(identities);
+    }
+
+    private static int maxTokenConcurrency(FileConfigurationReader configurationReader, int initialTokenConcurrency) {
+        var configured = configurationReader == null ? null : configurationReader.getMaxTokenConcurrency();
+        if (configured == null) {
+            return initialTokenConcurrency * DEFAULT_MAX_TOKEN_CONCURRENCY_PER_WORKER;
+        }
+        if (configured < initialTokenConcurrency) {
+            throw new IllegalArgumentException("signature.concurrency.maxLimit must be at least the number of workers ("
+                    + initialTokenConcurrency + ") but was " + configured);
+        }
+        return configured;
+    }
 
-        var signingCertificateV2 = new SigningCertificateV2(new ESSCertIDv2[]{essCert});
-        var attributeValue = new DERSet(signingCertificateV2);
+    private static int defaultWorkerCount(SigningKeySource signingKeySource) {
+        if (signingKeySource.isHardwareBacked()) {
+            return Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
 
-        return new Attribute(attributeIdentifier, attributeValue);
+    /**
+     * Wraps the call that computes the RSA signature, which is where the token is used. The call
+     * is admitted by the adaptive concurrency limiter, which learns from its latency, and is
+     * recorded as a {@link TokenSignEvent}. A document whose request expires while it waits for
+     * the limiter is dropped without calling the token.
+     */
+    private class TokenContentSigner implements ContentSigner {
+        private final ContentSigner contentSigner;
+        private final SigningDeadline deadline;
+
+        TokenContentSigner(ContentSigner contentSigner, SigningDeadline deadline) {
+            this.contentSigner = contentSigner;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public AlgorithmIdentifier getAlgorithmIdentifier() {
+            return contentSigner.getAlgorithmIdentifier();
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return contentSigner.getOutputStream();
+        }
+
+        @Override
+        public byte[] getSignature() {
+            checkDeadline(deadline);
+            var permit = tokenConcurrencyLimiter.acquire();
+            if (deadline.isExpired()) {
+                tokenConcurrencyLimiter.cancel();
+                checkDeadline(deadline);
+            }
+            var succeeded = false;
+            var tokenSign = new TokenSignEvent();
+            tokenSign.begin();
+            var start = System.nanoTime();
+            try {
+                var signature = contentSigner.getSignature();
+                succeeded = true;
+                return signature;
+            } finally {
+                var latencyNanos = System.nanoTime() - start;
+                tokenCalls.increment();
+                tokenNanos.add(latencyNanos);
+                tokenConcurrencyLimiter.release(permit, latencyNanos, succeeded);
+                workers.setActiveWorkerLimit(tokenConcurrencyLimiter.getLimit());
+                tokenSign.commit(SigningContext.currentBatchId(), SigningContext.currentDocumentSize());
+            }
+        }
     }
 
     private static class SignatureException extends RuntimeException {
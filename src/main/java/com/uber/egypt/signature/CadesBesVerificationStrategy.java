@@ -0,0 +1,228 @@
+package com.uber.egypt.signature;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.cms.AttributeTable;
+import org.bouncycastle.asn1.ess.SigningCertificateV2;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentVerifier;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.cert.CertPathValidator;
+import java.security.cert.CertificateFactory;
+import java.security.cert.PKIXParameters;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies CAdES-BES signatures created by {@link CadesBesSigningStrategy}.
+ * <p>
+ * Verification only needs the public key embedded in the signature, so it runs entirely in
+ * software and never touches the signing token. The parsed certificate and its verifier are cached
+ * per certificate, since every signature of a batch normally carries the same one. Certificates
+ * come from the request, so only the most recently used ones are kept.
+ * <p>
+ * With trust anchors configured, a signature is only valid if its certificate chains to one of
+ * them. Without, signatures are reported valid but not trusted, since anyone can sign with a
+ * certificate of their own.
+ */
+@Component
+public class CadesBesVerificationStrategy {
+    private static final Provider VERIFICATION_PROVIDER = new BouncyCastleProvider();
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int MAX_CACHED_CERTIFICATES = 64;
+
+    private final Set<TrustAnchor> trustAnchors;
+    private final Map<X509CertificateHolder, CertificateVerifier> verifiersByCertificate = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<X509CertificateHolder, CertificateVerifier> eldest) {
+                    return size() > MAX_CACHED_CERTIFICATES;
+                }
+            }
+    );
+
+    public CadesBesVerificationStrategy() {
+        this(List.of());
+    }
+
+    @Autowired
+    public CadesBesVerificationStrategy(FileConfigurationReader configurationReader) {
+        this(loadTrustAnchors(configurationReader.getVerificationTrustAnchorsPath()));
+    }
+
+    public CadesBesVerificationStrategy(Collection<X509Certificate> trustAnchors) {
+        this.trustAnchors = trustAnchors
+                .stream()
+                .map(certificate -> new TrustAnchor(certificate, null))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Verifies a Base64 encoded CAdES-BES signature against the SHA-256 digest of the canonical
+     * form of the signed document.
+     */
+    public VerificationResult verify(byte[] canonicalDigest, String signature) {
+        try {
+            var signedData = new CMSSignedData(Base64.getDecoder().decode(signature));
+            Collection<SignerInformation> signers = signedData.getSignerInfos().getSigners();
+            if (signers.size() != 1) {
+                return VerificationResult.failed("Expected exactly one signer but found " + signers.size());
+            }
+            var signerInfo = signers.iterator().next();
+            @SuppressWarnings("unchecked")
+            Collection<X509CertificateHolder> certificates = signedData.getCertificates().getMatches(signerInfo.getSID());
+            if (certificates.isEmpty()) {
+                return VerificationResult.failed("The signer certificate is missing");
+            }
+            return verify(canonicalDigest, signerInfo, getCertificateVerifier(certificates.iterator().next()));
+        } catch (Exception e) {
+            return VerificationResult.failed("Malformed signature: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The verifier is built outside the lock of the cache, since validating the certificate path
+     * is slow and the signatures of a batch are verified in parallel. Threads that miss the same
+     * certificate at once may both build a verifier, and all of them then use the first cached.
+     */
+    private CertificateVerifier getCertificateVerifier(X509CertificateHolder certificate) {
+        var certificateVerifier = verifiersByCertificate.get(certificate);
+        if (certificateVerifier != null) {
+            return certificateVerifier;
+        }
+        certificateVerifier = new CertificateVerifier(certificate, trustAnchors);
+        var cachedVerifier = verifiersByCertificate.putIfAbsent(certificate, certificateVerifier);
+        return cachedVerifier != null ? cachedVerifier : certificateVerifier;
+    }
+
+    private VerificationResult verify(byte[] canonicalDigest, SignerInformation signerInfo, CertificateVerifier certificateVerifier) throws Exception {
+        AttributeTable signedAttributes = signerInfo.getSignedAttributes();
+        if (signedAttributes == null) {
+            return VerificationResult.failed("The signed attributes are missing");
+        }
+
+        var messageDigest = signedAttributes.get(PKCSObjectIdentifiers.pkcs_9_at_messageDigest);
+        if (messageDigest == null
+                || !Arrays.equals(canonicalDigest, getSingleOctetString(messageDigest))) {
+            return VerificationResult.failed("The messageDigest does not match the canonical form of the document");
+        }
+
+        var signingCertificate = signedAttributes.get(PKCSObjectIdentifiers.id_aa_signingCertificateV2);
+        if (signingCertificate == null || !certificateVerifier.matchesHash(signingCertificate)) {
+            return VerificationResult.failed("The SigningCertificateV2 hash does not match the signer certificate");
+        }
+
+        if (!certificateVerifier.verifySignature(signerInfo)) {
+            return VerificationResult.failed("The RSA signature is not valid");
+        }
+        if (!trustAnchors.isEmpty() && !certificateVerifier.isTrusted()) {
+            return VerificationResult.failed("The signer certificate does not chain to a trust anchor: "
+                    + certificateVerifier.getDistrustReason());
+        }
+        return VerificationResult.passed(certificateVerifier.isTrusted());
+    }
+
+    private static byte[] getSingleOctetString(Attribute attribute) {
+        return ASN1OctetString.getInstance(attribute.getAttrValues().getObjectAt(0)).getOctets();
+    }
+
+    private static List<X509Certificate> loadTrustAnchors(String trustAnchorsPath) {
+        if (trustAnchorsPath == null || trustAnchorsPath.isBlank()) {
+            return List.of();
+        }
+        try (InputStream trustAnchorsFile = new FileInputStream(trustAnchorsPath.trim())) {
+            return CertificateFactory
+                    .getInstance("X.509")
+                    .generateCertificates(trustAnchorsFile)
+                    .stream()
+                    .map(X509Certificate.class::cast)
+                    .toList();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class CertificateVerifier {
+        private final byte[] certificateHash;
+        private final ContentVerifierProvider contentVerifierProvider;
+        private final String distrustReason;
+
+        CertificateVerifier(X509CertificateHolder certificate, Set<TrustAnchor> trustAnchors) {
+            try {
+                certificateHash = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(certificate.getEncoded());
+                contentVerifierProvider = new JcaContentVerifierProviderBuilder()
+                        .setProvider(VERIFICATION_PROVIDER)
+                        .build(certificate);
+                distrustReason = validateChain(new JcaX509CertificateConverter().getCertificate(certificate), trustAnchors);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        boolean isTrusted() {
+            return distrustReason == null;
+        }
+
+        String getDistrustReason() {
+            return distrustReason;
+        }
+
+        // The signatures carry no revocation information, so only the chain and the validity
+        // periods are checked.
+        private static String validateChain(X509Certificate certificate, Set<TrustAnchor> trustAnchors) {
+            if (trustAnchors.isEmpty()) {
+                return "No trust anchors are configured";
+            }
+            try {
+                var parameters = new PKIXParameters(trustAnchors);
+                parameters.setRevocationEnabled(false);
+                var certificatePath = CertificateFactory.getInstance("X.509").generateCertPath(List.of(certificate));
+                CertPathValidator.getInstance("PKIX").validate(certificatePath, parameters);
+                return null;
+            } catch (GeneralSecurityException e) {
+                return e.getMessage();
+            }
+        }
+
+        boolean matchesHash(Attribute signingCertificateAttribute) {
+            var signingCertificate = SigningCertificateV2.getInstance(
+                    signingCertificateAttribute.getAttrValues().getObjectAt(0)
+            );
+            var certs = signingCertificate.getCerts();
+            return certs.length > 0 && Arrays.equals(certificateHash, certs[0].getCertHash());
+        }
+
+        boolean verifySignature(SignerInformation signerInfo) throws Exception {
+            ContentVerifier contentVerifier = contentVerifierProvider.get(signerInfo.toASN1Structure().getDigestEncryptionAlgorithm());
+            try (OutputStream verifierStream = contentVerifier.getOutputStream()) {
+                verifierStream.write(signerInfo.getEncodedSignedAttributes());
+            }
+            return contentVerifier.verify(signerInfo.getSignature());
+        }
+    }
+}
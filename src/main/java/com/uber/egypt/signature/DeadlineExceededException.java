@@ -0,0 +1,8 @@
+package com.uber.egypt.signature;
+
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException() {
+        super("The request passed its deadline or was abandoned before the document was signed");
+    }
+}
@@ -2,64 +2,635 @@ package com.uber.egypt.signature;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.document.CanonicalFragmentCache;
+import com.uber.egypt.document.EtaDocumentCanonicalizer;
+import com.uber.egypt.document.InvalidDocumentFormatException;
 import com.uber.egypt.document.JsonUtils;
+import com.uber.egypt.telemetry.AllocationAccounting;
+import com.uber.egypt.telemetry.AllocationStage;
+import com.uber.egypt.telemetry.BatchAllocations;
+import com.uber.egypt.telemetry.CanonicalizationEvent;
+import com.uber.egypt.telemetry.MergeSerializeEvent;
+import com.uber.egypt.telemetry.RequestDecodeEvent;
+import com.uber.egypt.telemetry.SigningContext;
+import com.uber.egypt.telemetry.TokenQueueWaitEvent;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collector;
+import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
 @Component
 public class DocumentSigningService {
     private final String DOCUMENTS_ARRAY_KEY = "documents";
+    private final String DIGESTS_ARRAY_KEY = "digests";
+    private final String SIGNATURES_ARRAY_KEY = "signatures";
+    private final String INTERNAL_ID_KEY = "internalID";
+    private static final SigningDeadline NO_DEADLINE = SigningDeadline.never();
     private final CadesBesSigningStrategy cadesBesSigningStrategy;
+    private final AllocationAccounting allocationAccounting;
+    private final Duration defaultTimeout;
+    private final int maxConcurrentStreams;
+    private final Semaphore streams;
+    private final Scheduler streamReaders;
     private final Gson gson;
 
-    protected DocumentSigningService(CadesBesSigningStrategy cadesBesSigningStrategy) {
+    protected DocumentSigningService(
+            CadesBesSigningStrategy cadesBesSigningStrategy,
+            AllocationAccounting allocationAccounting,
+            FileConfigurationReader configurationReader
+    ) {
         this.gson = new Gson();
         this.cadesBesSigningStrategy = cadesBesSigningStrategy;
+        this.allocationAccounting = allocationAccounting;
+        var defaultTimeoutMillis = configurationReader.getDefaultSigningTimeoutMillis();
+        this.defaultTimeout = defaultTimeoutMillis == null ? null : Duration.ofMillis(defaultTimeoutMillis);
+        this.maxConcurrentStreams = configurationReader.getMaxConcurrentStreams();
+        this.streams = new Semaphore(maxConcurrentStreams);
+        this.streamReaders = Schedulers.newBoundedElastic(
+                Math.max(1, maxConcurrentStreams),
+                Integer.MAX_VALUE,
+                "stream-reader",
+                60,
+                true
+        );
     }
 
-    public String generateSignedDocuments(String documents) {
-        var unsignedDocuments = extractUnsignedDocuments(documents);
-        var signedDocuments = signDocuments(unsignedDocuments);
-        return wrapSignedDocuments(signedDocuments).toString();
+    @PreDestroy
+    public void shutdown() {
+        streamReaders.dispose();
     }
 
-    private String generateSignedDocument(String document) {
-        var canonicalizedDocument = JsonUtils.canonicalize(document);
-        var signature = cadesBesSigningStrategy.sign(canonicalizedDocument);
-        return JsonUtils.merge(document, signature);
+    /**
+     * Signs a batch of documents given as the UTF-8 encoding of a {@code documents} envelope, and
+     * returns the UTF-8 encoding of the signed envelope. The request is parsed straight from its
+     * bytes and every document is canonicalized straight into the bytes that are hashed, so the
+     * request is never held as a String.
+     * <p>
+     * In {@link ResponseMode#SIGNATURES} mode, the envelope holds a {@code signatures} array of
+     * internalID (or index) and signature pairs instead of the signed documents.
+     * <p>
+     * The documents are signed for the named identity, or for the default identity if no name is
+     * given. Documents that are not signed within the timeout, or the configured default timeout
+     * if none is given, are reported as error entries instead.
+     * <p>
+     * The heap allocations of every stage are accounted to the given allocations, if any.
+     */
+    public byte[] generateSignedDocuments(
+            byte[] documents,
+            SigningPriority priority,
+            ResponseMode mode,
+            String identityName,
+            Duration timeout,
+            BatchAllocations allocations
+    ) {
+        return generateSignedDocuments(documents, false, priority, mode, identityName, timeout, allocations);
     }
 
-    private JsonArray extractUnsignedDocuments(String documents) {
+    /**
+     * Signs a batch like {@link #generateSignedDocuments}, from the Base64 encoding of the
+     * envelope, as the REST API receives it. Decoding the Base64 is part of the request decode
+     * stage of the batch.
+     */
+    public byte[] generateSignedEncodedDocuments(
+            byte[] encodedDocuments,
+            SigningPriority priority,
+            ResponseMode mode,
+            String identityName,
+            Duration timeout,
+            BatchAllocations allocations
+    ) {
+        return generateSignedDocuments(encodedDocuments, true, priority, mode, identityName, timeout, allocations);
+    }
+
+    private byte[] generateSignedDocuments(
+            byte[] requestBody,
+            boolean encoded,
+            SigningPriority priority,
+            ResponseMode mode,
+            String identityName,
+            Duration timeout,
+            BatchAllocations allocations
+    ) {
+        var batchId = SigningContext.nextBatchId();
+        var identity = cadesBesSigningStrategy.getIdentity(identityName);
+        var deadline = startDeadline(timeout != null ? timeout : defaultTimeout);
+        var documentCount = 0;
+        allocationAccounting.attach(batchId, allocations);
+        try {
+            var decode = new RequestDecodeEvent();
+            decode.begin();
+            var documents = encoded
+                    ? allocationAccounting.measure(batchId, AllocationStage.DECODE, () -> Base64.getDecoder().decode(requestBody))
+                    : requestBody;
+            var unsignedDocuments = allocationAccounting.measure(batchId, AllocationStage.PARSE, () -> extractUnsignedDocuments(documents));
+            decode.commit(batchId, documents.length);
+            documentCount = unsignedDocuments.size();
+
+            var signedDocuments = signDocuments(batchId, unsignedDocuments, priority, mode, identity, deadline, new CanonicalFragmentCache());
+
+            var serialize = new MergeSerializeEvent();
+            serialize.begin();
+            var response = allocationAccounting.measure(batchId, AllocationStage.MERGE, () -> toUtf8(wrapSignedDocuments(signedDocuments, mode)));
+            serialize.commit(batchId, response.length);
+            return response;
+        } finally {
+            allocationAccounting.finish(batchId, documentCount);
+        }
+    }
+
+    /**
+     * Signs the documents of a Base64 encoded {@code documents} envelope while it is still being
+     * read, and emits one line of JSON per document in input order: the signed document (or its
+     * internalID and signature, depending on the mode), or its error entry.
+     * <p>
+     * A document is only read from the stream once there is room for it. At most as many
+     * documents of a stream as there are signing workers are being signed, and no more documents
+     * are signed than the client has read, so a slow client holds back its own documents rather
+     * than filling the queues of the token.
+     * <p>
+     * A stream may take longer than the default timeout, so it only has a deadline if a timeout is
+     * given. Documents still being signed when the client goes away are dropped.
+     * <p>
+     * If the envelope breaks off, the documents read before are still emitted, followed by an
+     * error line without an index.
+     * <p>
+     * The body is read with blocking I/O, so every stream holds a reader thread while its client
+     * uploads. Streams get their own readers, so that slow uploads do not hold up other work, and
+     * a stream beyond the configured maximum is rejected instead of waiting for a reader.
+     */
+    public Flux<String> streamSignedDocuments(
+            InputStream documents,
+            SigningPriority priority,
+            ResponseMode mode,
+            String identityName,
+            Duration timeout,
+            BatchAllocations allocations
+    ) {
+        var identity = cadesBesSigningStrategy.getIdentity(identityName);
+        if (!streams.tryAcquire()) {
+            throw new TooManyStreamsException(maxConcurrentStreams);
+        }
+        var batchId = SigningContext.nextBatchId();
+        var deadline = startDeadline(timeout);
+        var fragments = new CanonicalFragmentCache();
+        var documentCount = new AtomicInteger();
+        var ended = new AtomicBoolean();
+        // Runs before the client sees the end of the stream, so that it can start the next one.
+        Runnable end = () -> {
+            if (ended.compareAndSet(false, true)) {
+                streams.release();
+                allocationAccounting.finish(batchId, documentCount.get());
+            }
+        };
+        return Flux
+                .using(
+                        () -> {
+                            allocationAccounting.attach(batchId, allocations);
+                            return openDocumentsArray(documents);
+                        },
+                        reader -> readDocuments(batchId, reader),
+                        DocumentSigningService::close
+                )
+                .subscribeOn(streamReaders)
+                .doOnNext(document -> documentCount.incrementAndGet())
+                .index()
+                .flatMapSequentialDelayError(
+                        document -> Mono
+                                .fromFuture(() -> submitDocument(batchId, document.getT1().intValue(), document.getT2(), priority, mode, identity, deadline, fragments))
+                                .onErrorResume(e -> Mono.just(buildError(document.getT1().intValue(), e))),
+                        cadesBesSigningStrategy.getWorkerCount(),
+                        Queues.XS_BUFFER_SIZE
+                )
+                .map(signedDocument -> allocationAccounting.measure(batchId, AllocationStage.MERGE, () -> signedDocument + "\n"))
+                .onErrorResume(e -> Mono.just(buildStreamError(e) + "\n"))
+                .doOnCancel(deadline::abandon)
+                .doOnTerminate(end)
+                .doFinally(signal -> end.run());
+    }
+
+    private JsonReader openDocumentsArray(InputStream documents) throws IOException {
+        var reader = new JsonReader(new InputStreamReader(Base64.getDecoder().wrap(documents), StandardCharsets.UTF_8));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(DOCUMENTS_ARRAY_KEY)) {
+                reader.beginArray();
+                return reader;
+            }
+            reader.skipValue();
+        }
+        throw new InvalidDocumentFormatException("The request has no " + DOCUMENTS_ARRAY_KEY + " array");
+    }
+
+    private Flux<JsonElement> readDocuments(long batchId, JsonReader reader) {
+        return Flux.generate(sink -> {
+            try {
+                if (reader.hasNext()) {
+                    sink.next(allocationAccounting.measure(batchId, AllocationStage.PARSE, () -> gson.fromJson(reader, JsonElement.class)));
+                } else {
+                    reader.endArray();
+                    sink.complete();
+                }
+            } catch (IOException | JsonParseException e) {
+                sink.error(new InvalidDocumentFormatException(e));
+            }
+        });
+    }
+
+    private static void close(JsonReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Signs a batch of Base64 encoded SHA-256 digests of canonicalized documents and returns the
+     * signatures in the same order.
+     */
+    public String generateDigestSignatures(String digests, SigningPriority priority, String identityName, Duration timeout) {
+        var batchId = SigningContext.nextBatchId();
+        var identity = cadesBesSigningStrategy.getIdentity(identityName);
+        var deadline = startDeadline(timeout != null ? timeout : defaultTimeout);
+        var unsignedDigests = gson
+                .fromJson(digests, JsonObject.class)
+                .get(DIGESTS_ARRAY_KEY)
+                .getAsJsonArray();
+        var pendingSignatures = StreamSupport
+                .stream(unsignedDigests.spliterator(), false)
+                .map(
+                        digest -> CompletableFuture.supplyAsync(
+                                () -> SigningContext.withDocument(
+                                        batchId,
+                                        digest.toString().length(),
+                                        () -> cadesBesSigningStrategy.signDigest(decodeDigest(digest), identity, deadline)
+                                ),
+                                cadesBesSigningStrategy.getWorkers(priority)
+                        )
+                )
+                .toList();
+
+        JsonArray signatures = new JsonArray();
+        IntStream
+                .range(0, pendingSignatures.size())
+                .mapToObj(index -> awaitSignatureOrBuildError(index, pendingSignatures.get(index)))
+                .forEach(signatures::add);
+        JsonObject result = new JsonObject();
+        result.add(SIGNATURES_ARRAY_KEY, signatures);
+        return result.toString();
+    }
+
+    private static byte[] decodeDigest(JsonElement digest) {
+        try {
+            return Base64.getDecoder().decode(digest.getAsString());
+        } catch (RuntimeException e) {
+            throw new InvalidDigestException(e);
+        }
+    }
+
+    /**
+     * Signs a single document given as UTF-8 JSON and completes with its signature, for callers
+     * that add the signature to the document themselves. The document is dropped if the deadline
+     * passes before it is signed.
+     */
+    public CompletableFuture<String> signDocument(byte[] document, SigningPriority priority, SigningDeadline deadline) {
+        var batchId = SigningContext.nextBatchId();
+        var queueWait = new TokenQueueWaitEvent();
+        queueWait.begin();
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    queueWait.end();
+                    var identity = cadesBesSigningStrategy.getIdentity(null);
+                    return generateSignature(batchId, JsonUtils.parse(document), identity, deadline, null, queueWait).value();
+                },
+                cadesBesSigningStrategy.getWorkers(priority)
+        );
+    }
+
+    /**
+     * Signs one document of a batch that the caller reads itself, given as UTF-8 JSON, and
+     * completes with what {@code /sign} returns for it: the signed document (or its internalID
+     * and signature, depending on the mode), or its error entry. The document is parsed by the
+     * worker that signs it, and the future never completes exceptionally. The documents of one
+     * batch share one fragment cache.
+     */
+    public CompletableFuture<JsonObject> signBatchDocument(
+            long batchId,
+            int index,
+            byte[] document,
+            SigningPriority priority,
+            ResponseMode mode,
+            SigningIdentity identity,
+            CanonicalFragmentCache fragments
+    ) {
+        var queueWait = new TokenQueueWaitEvent();
+        queueWait.begin();
+        return CompletableFuture
+                .supplyAsync(
+                        () -> {
+                            queueWait.end();
+                            return signUnsignedDocument(batchId, index, JsonUtils.parse(document), mode, identity, NO_DEADLINE, fragments, queueWait);
+                        },
+                        cadesBesSigningStrategy.getWorkers(priority)
+                )
+                .exceptionally(e -> buildError(index, e instanceof CompletionException ? e.getCause() : e));
+    }
+
+    /**
+     * Signs one already parsed document of a batch that the caller reads itself, see
+     * {@link #signBatchDocument(long, int, byte[], SigningPriority, ResponseMode, SigningIdentity, CanonicalFragmentCache)}.
+     */
+    public CompletableFuture<JsonObject> signBatchDocument(
+            long batchId,
+            int index,
+            JsonElement document,
+            SigningPriority priority,
+            ResponseMode mode,
+            SigningIdentity identity,
+            CanonicalFragmentCache fragments
+    ) {
+        return submitDocument(batchId, index, document, priority, mode, identity, NO_DEADLINE, fragments)
+                .exceptionally(e -> buildError(index, e instanceof CompletionException ? e.getCause() : e));
+    }
+
+    /**
+     * Signs a single SHA-256 digest of a canonicalized document and completes with its signature,
+     * unless the deadline passes before it is signed.
+     */
+    public CompletableFuture<String> signDigest(byte[] digest, SigningPriority priority, SigningDeadline deadline) {
+        var batchId = SigningContext.nextBatchId();
+        var identity = cadesBesSigningStrategy.getIdentity(null);
+        return CompletableFuture.supplyAsync(
+                () -> SigningContext.withDocument(batchId, digest.length, () -> cadesBesSigningStrategy.signDigest(digest, identity, deadline)),
+                cadesBesSigningStrategy.getWorkers(priority)
+        );
+    }
+
+    // The document is identified by its internalID, which callers already key their documents
+    // by, and only by its index if it has none.
+    private JsonObject generateSignatureEntry(
+            long batchId,
+            int index,
+            JsonElement document,
+            SigningIdentity identity,
+            SigningDeadline deadline,
+            CanonicalFragmentCache fragments,
+            TokenQueueWaitEvent queueWait
+    ) {
+        var signature = generateSignature(batchId, document, identity, deadline, fragments, queueWait);
+
+        return allocationAccounting.measure(batchId, AllocationStage.MERGE, () -> {
+            JsonObject result = new JsonObject();
+            var internalId = document.getAsJsonObject().get(INTERNAL_ID_KEY);
+            if (internalId != null && !internalId.isJsonNull()) {
+                result.add(INTERNAL_ID_KEY, internalId);
+            } else {
+                result.addProperty("index", index);
+            }
+            result.addProperty("signature", signature.value());
+            return result;
+        });
+    }
+
+    private JsonObject generateSignedDocument(
+            long batchId,
+            JsonElement document,
+            SigningIdentity identity,
+            SigningDeadline deadline,
+            CanonicalFragmentCache fragments,
+            TokenQueueWaitEvent queueWait
+    ) {
+        var signature = generateSignature(batchId, document, identity, deadline, fragments, queueWait);
+
+        var merge = new MergeSerializeEvent();
+        merge.begin();
+        var signedDocument = allocationAccounting.measure(batchId, AllocationStage.MERGE, () -> JsonUtils.merge(document, signature.value()));
+        merge.commit(batchId, signature.documentSize());
+        return signedDocument;
+    }
+
+    // The size of a document is only known once it is canonicalized, so the queue wait is
+    // committed after the canonicalization. A document whose request expired while it was queued
+    // is not even canonicalized. Single documents have no batch to share fragments with.
+    private DocumentSignature generateSignature(
+            long batchId,
+            JsonElement document,
+            SigningIdentity identity,
+            SigningDeadline deadline,
+            CanonicalFragmentCache fragments,
+            TokenQueueWaitEvent queueWait
+    ) {
+        cadesBesSigningStrategy.checkDeadline(deadline);
+        if (!document.isJsonObject()) {
+            throw new InvalidDocumentFormatException("A document must be a JSON object");
+        }
+        var canonicalization = new CanonicalizationEvent();
+        canonicalization.begin();
+        var canonicalizedDocument = allocationAccounting.measure(
+                batchId,
+                AllocationStage.CANONICALIZE,
+                () -> EtaDocumentCanonicalizer.canonicalizeToUtf8(document, fragments)
+        );
+        canonicalization.commit(batchId, canonicalizedDocument.length);
+        queueWait.commitEnded(batchId, canonicalizedDocument.length);
+
+        var signature = SigningContext.withDocument(
+                batchId,
+                canonicalizedDocument.length,
+                () -> allocationAccounting.measure(
+                        batchId,
+                        AllocationStage.SIGN,
+                        () -> cadesBesSigningStrategy.sign(canonicalizedDocument, identity, deadline)
+                )
+        );
+        return new DocumentSignature(signature, canonicalizedDocument.length);
+    }
+
+    private static SigningDeadline startDeadline(Duration timeout) {
+        return timeout == null ? SigningDeadline.none() : SigningDeadline.after(timeout);
+    }
+
+    private JsonArray extractUnsignedDocuments(byte[] documents) {
+        var reader = new InputStreamReader(new ByteArrayInputStream(documents), StandardCharsets.UTF_8);
         return gson
-                .fromJson(documents, JsonObject.class)
+                .fromJson(reader, JsonObject.class)
                 .get(DOCUMENTS_ARRAY_KEY)
                 .getAsJsonArray();
     }
 
-    private JsonObject wrapSignedDocuments(JsonArray signedDocuments) {
+    private byte[] toUtf8(JsonElement response) {
+        var result = new ByteArrayOutputStream();
+        try (var writer = new OutputStreamWriter(result, StandardCharsets.UTF_8)) {
+            gson.toJson(response, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toByteArray();
+    }
+
+    private JsonObject wrapSignedDocuments(JsonArray signedDocuments, ResponseMode mode) {
         JsonObject result = new JsonObject();
-        result.add(DOCUMENTS_ARRAY_KEY, signedDocuments);
+        result.add(mode == ResponseMode.SIGNATURES ? SIGNATURES_ARRAY_KEY : DOCUMENTS_ARRAY_KEY, signedDocuments);
         return result;
     }
 
-    private JsonArray signDocuments(JsonArray unsignedDocuments) {
-        return StreamSupport
-                .stream(unsignedDocuments.spliterator(), true)
-                .map(
-                        unsignedDocument -> generateSignedDocument(unsignedDocument.toString())
-                )
-                .map(signedDocument -> gson.fromJson(signedDocument, JsonObject.class))
+    private JsonArray signDocuments(
+            long batchId,
+            JsonArray unsignedDocuments,
+            SigningPriority priority,
+            ResponseMode mode,
+            SigningIdentity identity,
+            SigningDeadline deadline,
+            CanonicalFragmentCache fragments
+    ) {
+        var pendingSignedDocuments = IntStream
+                .range(0, unsignedDocuments.size())
+                .mapToObj(index -> submitDocument(batchId, index, unsignedDocuments.get(index), priority, mode, identity, deadline, fragments))
+                .toList();
+        return IntStream
+                .range(0, pendingSignedDocuments.size())
+                .mapToObj(index -> awaitOrBuildError(index, pendingSignedDocuments.get(index)))
                 .collect(JsonObjectCollector.toJsonObjectCollector());
     }
 
+    private CompletableFuture<JsonObject> submitDocument(
+            long batchId,
+            int index,
+            JsonElement unsignedDocument,
+            SigningPriority priority,
+            ResponseMode mode,
+            SigningIdentity identity,
+            SigningDeadline deadline,
+            CanonicalFragmentCache fragments
+    ) {
+        var queueWait = new TokenQueueWaitEvent();
+        queueWait.begin();
+        return CompletableFuture.supplyAsync(
+                () -> {
+                    queueWait.end();
+                    return signUnsignedDocument(batchId, index, unsignedDocument, mode, identity, deadline, fragments, queueWait);
+                },
+                cadesBesSigningStrategy.getWorkers(priority)
+        );
+    }
+
+    private JsonObject signUnsignedDocument(
+            long batchId,
+            int index,
+            JsonElement unsignedDocument,
+            ResponseMode mode,
+            SigningIdentity identity,
+            SigningDeadline deadline,
+            CanonicalFragmentCache fragments,
+            TokenQueueWaitEvent queueWait
+    ) {
+        return mode == ResponseMode.SIGNATURES
+                ? generateSignatureEntry(batchId, index, unsignedDocument, identity, deadline, fragments, queueWait)
+                : generateSignedDocument(batchId, unsignedDocument, identity, deadline, fragments, queueWait);
+    }
+
+    /**
+     * Waits for the result of a single document. A failure is reported as an error entry at the
+     * document's position instead of failing the whole batch, so that only the failed documents
+     * have to be resubmitted.
+     */
+    private static JsonObject awaitOrBuildError(int index, CompletableFuture<JsonObject> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            return buildError(index, e.getCause());
+        } catch (RuntimeException e) {
+            return buildError(index, e);
+        }
+    }
+
+    private static JsonElement awaitSignatureOrBuildError(int index, CompletableFuture<String> pending) {
+        try {
+            return new JsonPrimitive(pending.join());
+        } catch (CompletionException e) {
+            return buildError(index, e.getCause());
+        } catch (RuntimeException e) {
+            return buildError(index, e);
+        }
+    }
+
+    // Ends a stream whose envelope could not be read past this point.
+    private static JsonObject buildStreamError(Throwable failure) {
+        JsonObject error = new JsonObject();
+        error.addProperty("type", getErrorType(failure));
+        error.addProperty("message", getErrorMessage(failure));
+
+        JsonObject result = new JsonObject();
+        result.add("error", error);
+        return result;
+    }
+
+    private static JsonObject buildError(int index, Throwable failure) {
+        JsonObject error = new JsonObject();
+        error.addProperty("type", getErrorType(failure));
+        error.addProperty("message", getErrorMessage(failure));
+
+        JsonObject result = new JsonObject();
+        result.addProperty("index", index);
+        result.add("error", error);
+        return result;
+    }
+
+    private static String getErrorType(Throwable failure) {
+        if (failure instanceof InvalidDocumentFormatException) {
+            return "INVALID_DOCUMENT";
+        } else if (failure instanceof InvalidDigestException) {
+            return "INVALID_DIGEST";
+        } else if (failure instanceof DeadlineExceededException) {
+            return "DEADLINE_EXCEEDED";
+        }
+        return "SIGNATURE_FAILURE";
+    }
+
+    private static String getErrorMessage(Throwable failure) {
+        var rootCause = failure;
+        while (rootCause.getCause() != null && rootCause.getCause() != rootCause) {
+            rootCause = rootCause.getCause();
+        }
+        return rootCause.getMessage() != null ? rootCause.getMessage() : rootCause.getClass().getSimpleName();
+    }
+
+    private record DocumentSignature(String value, int documentSize) {
+    }
+
     private static class JsonObjectCollector
             implements Collector<JsonObject, JsonArray, JsonArray> {
 
@@ -92,7 +663,7 @@ public class DocumentSigningService {
 
         @Override
         public Set<Characteristics> characteristics() {
-            return Set.of(Characteristics.UNORDERED);
+            return Set.of(Characteristics.IDENTITY_FINISH);
         }
     }
 }
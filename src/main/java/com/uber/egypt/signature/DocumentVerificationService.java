@@ -0,0 +1,107 @@
+package com.uber.egypt.signature;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.uber.egypt.document.CanonicalFragmentCache;
+import com.uber.egypt.document.EtaDocumentCanonicalizer;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.stream.IntStream;
+
+/**
+ * Checks signed documents before they are submitted to the ETA.
+ * <p>
+ * For every document the canonical form is recomputed and each issuer signature is checked by
+ * {@link CadesBesVerificationStrategy}. Documents are verified in parallel across all cores.
+ */
+@Component
+public class DocumentVerificationService {
+    private static final String DOCUMENTS_ARRAY_KEY = "documents";
+    private static final String SIGNATURES_ARRAY_KEY = "signatures";
+    private static final String INTERNAL_ID_KEY = "internalID";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private final CadesBesVerificationStrategy cadesBesVerificationStrategy;
+    private final Gson gson;
+
+    protected DocumentVerificationService(CadesBesVerificationStrategy cadesBesVerificationStrategy) {
+        this.gson = new Gson();
+        this.cadesBesVerificationStrategy = cadesBesVerificationStrategy;
+    }
+
+    public String verifySignedDocuments(String documents) {
+        var signedDocuments = gson
+                .fromJson(documents, JsonObject.class)
+                .get(DOCUMENTS_ARRAY_KEY)
+                .getAsJsonArray();
+        var fragments = new CanonicalFragmentCache();
+        var results = IntStream
+                .range(0, signedDocuments.size())
+                .parallel()
+                .mapToObj(index -> verifySignedDocument(index, signedDocuments.get(index), fragments))
+                .toList();
+
+        var resultsArray = new JsonArray();
+        results.forEach(resultsArray::add);
+        JsonObject result = new JsonObject();
+        result.add(DOCUMENTS_ARRAY_KEY, resultsArray);
+        return result.toString();
+    }
+
+    private JsonObject verifySignedDocument(int index, JsonElement signedDocument, CanonicalFragmentCache fragments) {
+        var verification = tryVerifySignedDocument(signedDocument, fragments);
+
+        JsonObject result = new JsonObject();
+        result.addProperty("index", index);
+        if (signedDocument.isJsonObject() && signedDocument.getAsJsonObject().has(INTERNAL_ID_KEY)) {
+            result.add(INTERNAL_ID_KEY, signedDocument.getAsJsonObject().get(INTERNAL_ID_KEY));
+        }
+        result.addProperty("valid", verification.valid());
+        result.addProperty("trusted", verification.trusted());
+        if (!verification.valid()) {
+            result.addProperty("failureReason", verification.failureReason());
+        }
+        return result;
+    }
+
+    private VerificationResult tryVerifySignedDocument(JsonElement signedDocument, CanonicalFragmentCache fragments) {
+        try {
+            return verifySignedDocument(signedDocument.getAsJsonObject(), fragments);
+        } catch (RuntimeException e) {
+            return VerificationResult.failed("Malformed document: " + e.getMessage());
+        }
+    }
+
+    private VerificationResult verifySignedDocument(JsonObject signedDocument, CanonicalFragmentCache fragments) {
+        var unsignedDocument = signedDocument.deepCopy();
+        var signatures = unsignedDocument.remove(SIGNATURES_ARRAY_KEY);
+        if (signatures == null || !signatures.isJsonArray() || signatures.getAsJsonArray().isEmpty()) {
+            return VerificationResult.failed("The document has no signatures");
+        }
+
+        var canonicalDigest = digest(EtaDocumentCanonicalizer.canonicalizeToUtf8(unsignedDocument, fragments));
+        var trusted = true;
+        for (JsonElement signature : signatures.getAsJsonArray()) {
+            var value = signature.getAsJsonObject().get("value").getAsString();
+            var verification = cadesBesVerificationStrategy.verify(canonicalDigest, value);
+            if (!verification.valid()) {
+                return verification;
+            }
+            trusted &= verification.trusted();
+        }
+        return VerificationResult.passed(trusted);
+    }
+
+    private static byte[] digest(byte[] canonicalizedDocument) {
+        try {
+            return MessageDigest
+                    .getInstance(DIGEST_ALGORITHM)
+                    .digest(canonicalizedDocument);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
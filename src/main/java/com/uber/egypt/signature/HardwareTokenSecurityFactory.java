@@ -1,14 +1,12 @@
 package com.uber.egypt.signature;
 
 import com.uber.egypt.configuration.FileConfigurationReader;
-import org.springframework.stereotype.Component;
 
 import java.security.*;
 import java.security.cert.X509Certificate;
-import java.util.Enumeration;
+import java.util.Map;
 
-@Component
-public class HardwareTokenSecurityFactory {
+public class HardwareTokenSecurityFactory implements SigningKeySource {
     private static final String PROVIDER_NAME = "SunPKCS11";
     private static final String KEY_STORE_TYPE = "PKCS11";
 
@@ -16,16 +14,22 @@ public class HardwareTokenSecurityFactory {
     private Provider provider;
     private KeyStore keyStore;
     private final String alias;
+    private final Map<String, KeyStore.PrivateKeyEntry> identities;
 
     HardwareTokenSecurityFactory(FileConfigurationReader fileConfigurationReader) {
         configurationReader = fileConfigurationReader;
         provider = Security.getProvider(PROVIDER_NAME);
         addSecurityProvider();
         initializeKeystore();
-        alias = getAliasByCertificateIssuerName(
+        alias = KeyStoreUtils.getAliasByCertificateIssuerName(
                 keyStore,
                 configurationReader.getCertificateIssuerName()
         );
+        identities = KeyStoreUtils.getPrivateKeyEntries(
+                keyStore,
+                KeyStoreUtils.getAliasesByCertificateIssuerName(keyStore, configurationReader.getCertificateIssuerName()),
+                null
+        );
     }
 
     public void addSecurityProvider() {
@@ -34,6 +38,7 @@ public class HardwareTokenSecurityFactory {
         Security.addProvider(provider);
     }
 
+    @Override
     public PrivateKey getPrivateKey() {
         try {
             return (PrivateKey) keyStore.getKey(alias, null);
@@ -42,6 +47,7 @@ public class HardwareTokenSecurityFactory {
         }
     }
 
+    @Override
     public X509Certificate getCertificate() {
         try {
             return (X509Certificate) keyStore.getCertificate(
@@ -52,10 +58,24 @@ public class HardwareTokenSecurityFactory {
         }
     }
 
+    @Override
     public Provider getProvider() {
         return provider;
     }
 
+    @Override
+    public boolean isHardwareBacked() {
+        return true;
+    }
+
+    /**
+     * Every key on the token whose certificate was issued by the configured issuer, by alias.
+     */
+    @Override
+    public Map<String, KeyStore.PrivateKeyEntry> getIdentities() {
+        return identities;
+    }
+
     private void initializeKeystore() {
         try {
             keyStore = KeyStore.getInstance(KEY_STORE_TYPE);
@@ -67,22 +87,4 @@ public class HardwareTokenSecurityFactory {
             throw new RuntimeException(e);
         }
     }
-
-    private String getAliasByCertificateIssuerName(KeyStore keyStore, String targetIssuerName) {
-        try {
-            Enumeration<String> aliases;
-            aliases = keyStore.aliases();
-            while (aliases.hasMoreElements()) {
-                String alias = aliases.nextElement();
-                X509Certificate certificate = (X509Certificate) keyStore.getCertificate(alias);
-                String issuerName = certificate.getIssuerX500Principal().getName();
-                if (issuerName.contains(targetIssuerName)) {
-                    return alias;
-                }
-            }
-            throw new RuntimeException();
-        } catch (KeyStoreException e) {
-            throw new RuntimeException(e);
-        }
-    }
 }
@@ -0,0 +1,12 @@
+package com.uber.egypt.signature;
+
+public class InvalidDigestException extends RuntimeException {
+
+    public InvalidDigestException(int digestLength) {
+        super("Expected a 32-byte SHA-256 digest but got " + digestLength + " bytes");
+    }
+
+    public InvalidDigestException(Exception e) {
+        super(e);
+    }
+}
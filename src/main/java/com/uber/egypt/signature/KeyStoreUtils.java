@@ -0,0 +1,71 @@
+package com.uber.egypt.signature;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class KeyStoreUtils {
+
+    private KeyStoreUtils() {
+    }
+
+    static String getAliasByCertificateIssuerName(KeyStore keyStore, String targetIssuerName) {
+        var aliases = getAliasesByCertificateIssuerName(keyStore, targetIssuerName);
+        if (aliases.isEmpty()) {
+            throw new RuntimeException();
+        }
+        return aliases.get(0);
+    }
+
+    /**
+     * The aliases of every key whose certificate was issued by the given issuer, in keystore
+     * order.
+     */
+    static List<String> getAliasesByCertificateIssuerName(KeyStore keyStore, String targetIssuerName) {
+        try {
+            List<String> result = new ArrayList<>();
+            Enumeration<String> aliases;
+            aliases = keyStore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                X509Certificate certificate = (X509Certificate) keyStore.getCertificate(alias);
+                if (certificate == null || !keyStore.isKeyEntry(alias)) {
+                    continue;
+                }
+                String issuerName = certificate.getIssuerX500Principal().getName();
+                if (issuerName.contains(targetIssuerName)) {
+                    result.add(alias);
+                }
+            }
+            return result;
+        } catch (KeyStoreException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the private key and certificate of each alias once, so that selecting an identity
+     * later does not touch the keystore.
+     */
+    static Map<String, KeyStore.PrivateKeyEntry> getPrivateKeyEntries(KeyStore keyStore, List<String> aliases, char[] password) {
+        try {
+            Map<String, KeyStore.PrivateKeyEntry> result = new LinkedHashMap<>();
+            for (String alias : aliases) {
+                var privateKey = (PrivateKey) keyStore.getKey(alias, password);
+                var certificate = keyStore.getCertificate(alias);
+                result.put(alias, new KeyStore.PrivateKeyEntry(privateKey, new Certificate[]{certificate}));
+            }
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.uber.egypt.signature;
+
+import com.uber.egypt.telemetry.SigningContext;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs signing work on a fixed set of workers, with one queue per {@link SigningPriority}.
+ * <p>
+ * Workers take interactive work first, but after a run of interactive tasks the next task comes
+ * from the bulk queue if it has any, so that bulk traffic keeps a guaranteed minimum share of the
+ * workers.
+ * <p>
+ * Only as many workers as the active limit take tasks at once, and the others wait before taking
+ * one. A task is therefore only dequeued once it can run, so the order above also holds when the
+ * limit shrinks below the number of workers.
+ */
+class PrioritySigningScheduler {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<SigningPriority, Queue<Runnable>> queues = new EnumMap<>(SigningPriority.class);
+    private final Map<SigningPriority, Executor> executors = new EnumMap<>(SigningPriority.class);
+    private final int interactiveTasksPerBulkTask;
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    private int activeWorkerLimit;
+    private int interactiveStreak;
+    private boolean shutdown;
+
+    PrioritySigningScheduler(int workerCount, double bulkMinimumShare) {
+        if (bulkMinimumShare <= 0 || bulkMinimumShare > 1) {
+            throw new IllegalArgumentException("The bulk minimum share must be in (0, 1] but was " + bulkMinimumShare);
+        }
+        this.interactiveTasksPerBulkTask = (int) Math.round((1 - bulkMinimumShare) / bulkMinimumShare);
+        this.activeWorkerLimit = workerCount;
+        for (SigningPriority priority : SigningPriority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            executors.put(priority, task -> submit(priority, task));
+        }
+        for (int tokenSlot = 0; tokenSlot < workerCount; tokenSlot++) {
+            var worker = new Thread(newWorkerLoop(tokenSlot), "signing-worker-" + tokenSlot);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    Executor getExecutor(SigningPriority priority) {
+        return executors.get(priority);
+    }
+
+    int getQueueDepth(SigningPriority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    /**
+     * Changes the number of workers that may run tasks at once. Workers above a lowered limit finish
+     * their current task before the limit applies to them.
+     */
+    void setActiveWorkerLimit(int limit) {
+        lock.lock();
+        try {
+            if (limit > activeWorkerLimit) {
+                workAvailable.signalAll();
+            }
+            activeWorkerLimit = limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void submit(SigningPriority priority, Runnable task) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("The signing workers are shut down");
+            }
+            queues.get(priority).add(task);
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Runnable newWorkerLoop(int tokenSlot) {
+        return () -> {
+            SigningContext.assignTokenSlot(tokenSlot);
+            Runnable task;
+            while ((task = take()) != null) {
+                try {
+                    task.run();
+                } finally {
+                    finish();
+                }
+            }
+        };
+    }
+
+    private Runnable take() {
+        lock.lock();
+        try {
+            var interactive = queues.get(SigningPriority.INTERACTIVE);
+            var bulk = queues.get(SigningPriority.BULK);
+            while ((interactive.isEmpty() && bulk.isEmpty()) || activeWorkers.get() >= activeWorkerLimit) {
+                if (shutdown && interactive.isEmpty() && bulk.isEmpty()) {
+                    return null;
+                }
+                workAvailable.awaitUninterruptibly();
+            }
+            activeWorkers.incrementAndGet();
+            if (!bulk.isEmpty() && (interactive.isEmpty() || interactiveStreak >= interactiveTasksPerBulkTask)) {
+                interactiveStreak = 0;
+                return bulk.poll();
+            }
+            interactiveStreak++;
+            return interactive.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish() {
+        lock.lock();
+        try {
+            activeWorkers.decrementAndGet();
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.uber.egypt.signature;
+
+public enum ResponseMode {
+    /**
+     * Every document with its signatures appended. The default for requests without a mode.
+     */
+    DOCUMENTS,
+    /**
+     * Only the internalID of every document, or its index if it has none, with its signature, for
+     * callers that keep the documents and add the signatures themselves.
+     */
+    SIGNATURES;
+
+    public static ResponseMode fromHeader(String header) {
+        if (header == null || header.isBlank()) {
+            return DOCUMENTS;
+        }
+        return valueOf(header.trim().toUpperCase());
+    }
+}
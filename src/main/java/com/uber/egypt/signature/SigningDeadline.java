@@ -0,0 +1,65 @@
+package com.uber.egypt.signature;
+
+import java.time.Duration;
+
+/**
+ * Until when the result of a request is still useful: the point in time after which its client
+ * no longer waits for it, if any, and whether the client has gone away already. Documents of an
+ * expired request are dropped before they reach the token.
+ */
+public class SigningDeadline {
+    private static final SigningDeadline NEVER = new SigningDeadline(false, 0) {
+        @Override
+        public void abandon() {
+            // Shared by every caller, so no caller can abandon it.
+        }
+    };
+    private final boolean bounded;
+    private final long deadlineNanos;
+    private volatile boolean abandoned;
+
+    private SigningDeadline(boolean bounded, long deadlineNanos) {
+        this.bounded = bounded;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * A deadline that only passes once the request is abandoned. Every call returns a new
+     * deadline, so that abandoning one request does not expire another.
+     */
+    public static SigningDeadline none() {
+        return new SigningDeadline(false, 0);
+    }
+
+    /**
+     * A deadline that never passes, for callers that cannot abandon their request.
+     */
+    public static SigningDeadline never() {
+        return NEVER;
+    }
+
+    public static SigningDeadline after(Duration timeout) {
+        return new SigningDeadline(true, System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Marks the request as abandoned by its client, e.g. because the connection was closed.
+     */
+    public void abandon() {
+        abandoned = true;
+    }
+
+    public boolean isExpired() {
+        return abandoned || bounded && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * The time left until the deadline, or {@code null} if the request has none.
+     */
+    public Duration getRemaining() {
+        if (!bounded) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+}
@@ -0,0 +1,68 @@
+package com.uber.egypt.signature;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.ess.ESSCertIDv2;
+import org.bouncycastle.asn1.ess.SigningCertificateV2;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.X509CertificateHolder;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+
+/**
+ * A legal entity documents can be signed for: the handle of its private key and everything
+ * derived from its certificate that goes into each signature, computed once.
+ */
+public class SigningIdentity {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private final String name;
+    private final PrivateKey privateKey;
+    private final X509CertificateHolder certificate;
+    private final Attribute signingCertificateV2Attribute;
+
+    SigningIdentity(String name, PrivateKey privateKey, X509Certificate certificate) {
+        this.name = name;
+        this.privateKey = privateKey;
+        try {
+            this.certificate = new X509CertificateHolder(certificate.getEncoded());
+            this.signingCertificateV2Attribute = buildSigningCertificateV2Attribute(certificate);
+        } catch (CertificateEncodingException | IOException | NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Invalid certificate for signing identity " + name, e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    X509CertificateHolder getCertificate() {
+        return certificate;
+    }
+
+    Attribute getSigningCertificateV2Attribute() {
+        return signingCertificateV2Attribute;
+    }
+
+    private static Attribute buildSigningCertificateV2Attribute(X509Certificate certificate) throws CertificateEncodingException, NoSuchAlgorithmException {
+        var digester = MessageDigest.getInstance(DIGEST_ALGORITHM);
+
+        var attributeIdentifier = ASN1ObjectIdentifier.getInstance(PKCSObjectIdentifiers.id_aa_signingCertificateV2);
+        var essCert = new ESSCertIDv2(new AlgorithmIdentifier(attributeIdentifier), digester.digest(certificate.getEncoded()));
+
+        var signingCertificateV2 = new SigningCertificateV2(new ESSCertIDv2[]{essCert});
+        var attributeValue = new DERSet(signingCertificateV2);
+
+        return new Attribute(attributeIdentifier, attributeValue);
+    }
+}
@@ -0,0 +1,37 @@
+package com.uber.egypt.signature;
+
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+
+/**
+ * A source of the private key and certificate used to create the CAdES-BES signature.
+ * <p>
+ * Implementations either delegate to a hardware token (PKCS#11) or to a file-based software
+ * keystore (PKCS#12/JKS).
+ */
+public interface SigningKeySource {
+
+    PrivateKey getPrivateKey();
+
+    X509Certificate getCertificate();
+
+    Provider getProvider();
+
+    /**
+     * Whether the private key lives on a hardware token, in which case the number of concurrent
+     * signing operations is limited by the token rather than by the available CPU cores.
+     */
+    boolean isHardwareBacked();
+
+    /**
+     * The private key and certificate of every legal entity requests may select, by identity
+     * name. {@link #getPrivateKey()} and {@link #getCertificate()} are used for requests that do
+     * not select one.
+     */
+    default Map<String, KeyStore.PrivateKeyEntry> getIdentities() {
+        return Map.of();
+    }
+}
@@ -0,0 +1,19 @@
+package com.uber.egypt.signature;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SigningKeySourceConfiguration {
+    private static final String HARDWARE_KEY_STORE_TYPE = "PKCS11";
+
+    @Bean
+    public SigningKeySource signingKeySource(FileConfigurationReader configurationReader) {
+        var keyStoreType = configurationReader.getKeyStoreType();
+        if (HARDWARE_KEY_STORE_TYPE.equalsIgnoreCase(keyStoreType)) {
+            return new HardwareTokenSecurityFactory(configurationReader);
+        }
+        return new SoftwareKeyStoreSecurityFactory(configurationReader, keyStoreType);
+    }
+}
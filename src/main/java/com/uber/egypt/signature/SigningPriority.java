@@ -0,0 +1,19 @@
+package com.uber.egypt.signature;
+
+public enum SigningPriority {
+    /**
+     * Single documents a person is waiting for, e.g. point-of-sale receipts.
+     */
+    INTERACTIVE,
+    /**
+     * Large batches that can wait, e.g. nightly exports. The default for requests without a priority.
+     */
+    BULK;
+
+    public static SigningPriority fromHeader(String header) {
+        if (header == null || header.isBlank()) {
+            return BULK;
+        }
+        return valueOf(header.trim().toUpperCase());
+    }
+}
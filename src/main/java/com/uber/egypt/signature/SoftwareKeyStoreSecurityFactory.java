@@ -0,0 +1,82 @@
+package com.uber.egypt.signature;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.security.*;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+
+/**
+ * Loads the signing key from a PKCS#12 or JKS file.
+ * <p>
+ * Only meant for the pre-production and disaster-recovery environments, where a file-based key is
+ * allowed and RSA signing is bound by the CPU instead of by a USB token.
+ */
+public class SoftwareKeyStoreSecurityFactory implements SigningKeySource {
+    private final Provider provider;
+    private final PrivateKey privateKey;
+    private final X509Certificate certificate;
+    private final Map<String, KeyStore.PrivateKeyEntry> identities;
+
+    SoftwareKeyStoreSecurityFactory(FileConfigurationReader configurationReader, String keyStoreType) {
+        provider = new BouncyCastleProvider();
+        var password = configurationReader.getKeyStorePassword().toCharArray();
+        var keyStore = loadKeyStore(keyStoreType, configurationReader.getKeyStoreFilePath(), password);
+        var alias = KeyStoreUtils.getAliasByCertificateIssuerName(
+                keyStore,
+                configurationReader.getCertificateIssuerName()
+        );
+        try {
+            privateKey = (PrivateKey) keyStore.getKey(alias, password);
+            certificate = (X509Certificate) keyStore.getCertificate(alias);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        identities = KeyStoreUtils.getPrivateKeyEntries(
+                keyStore,
+                KeyStoreUtils.getAliasesByCertificateIssuerName(keyStore, configurationReader.getCertificateIssuerName()),
+                password
+        );
+    }
+
+    @Override
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    @Override
+    public X509Certificate getCertificate() {
+        return certificate;
+    }
+
+    @Override
+    public Provider getProvider() {
+        return provider;
+    }
+
+    @Override
+    public boolean isHardwareBacked() {
+        return false;
+    }
+
+    /**
+     * Every key in the file whose certificate was issued by the configured issuer, by alias.
+     */
+    @Override
+    public Map<String, KeyStore.PrivateKeyEntry> getIdentities() {
+        return identities;
+    }
+
+    private static KeyStore loadKeyStore(String keyStoreType, String keyStoreFilePath, char[] password) {
+        try (InputStream keyStoreFile = new FileInputStream(keyStoreFilePath)) {
+            var keyStore = KeyStore.getInstance(keyStoreType);
+            keyStore.load(keyStoreFile, password);
+            return keyStore;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
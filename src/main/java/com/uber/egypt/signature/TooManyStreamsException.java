@@ -0,0 +1,12 @@
+package com.uber.egypt.signature;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class TooManyStreamsException extends RuntimeException {
+
+    public TooManyStreamsException(int maxConcurrentStreams) {
+        super("The signer already reads " + maxConcurrentStreams + " streams, retry later");
+    }
+}
@@ -0,0 +1,12 @@
+package com.uber.egypt.signature;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnknownSigningIdentityException extends RuntimeException {
+
+    public UnknownSigningIdentityException(String identity) {
+        super("Unknown signing identity: " + identity);
+    }
+}
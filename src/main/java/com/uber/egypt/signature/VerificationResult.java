@@ -0,0 +1,17 @@
+package com.uber.egypt.signature;
+
+/**
+ * The result of verifying a signature. {@code trusted} tells whether the signer certificate chains
+ * to a configured trust anchor; without trust anchors no signature is trusted, and a valid one only
+ * proves that it matches the certificate it carries.
+ */
+public record VerificationResult(boolean valid, boolean trusted, String failureReason) {
+
+    public static VerificationResult passed(boolean trusted) {
+        return new VerificationResult(true, trusted, null);
+    }
+
+    public static VerificationResult failed(String failureReason) {
+        return new VerificationResult(false, false, failureReason);
+    }
+}
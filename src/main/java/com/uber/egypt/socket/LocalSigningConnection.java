@@ -0,0 +1,190 @@
+package com.uber.egypt.socket;
+
+import com.uber.egypt.signature.DocumentSigningService;
+import com.uber.egypt.signature.SigningDeadline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * One client of the local listener. Frames are read as they arrive and signed concurrently, and
+ * the responses are written back in request order.
+ * <p>
+ * Only the selector thread touches a connection. The signing workers merely report that a
+ * response is ready, after which the selector thread writes it. The frames of a connection have
+ * no deadline, but those still queued when it is closed are dropped.
+ * <p>
+ * A connection created with a secret signs nothing until its first frame authenticated it, and
+ * is closed on any other first frame, or on an authentication frame longer than the secret.
+ */
+class LocalSigningConnection {
+    private static final int INITIAL_BUFFER_LENGTH = 64 * 1024;
+    private final SocketChannel channel;
+    private final DocumentSigningService documentSigningService;
+    private final Consumer<LocalSigningConnection> onResponseReady;
+    private final int maxPipelinedFrames;
+    private final byte[] secret;
+    private final Deque<CompletableFuture<ByteBuffer>> pendingResponses = new ArrayDeque<>();
+    private final SigningDeadline deadline = SigningDeadline.none();
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_LENGTH);
+    private ByteBuffer currentResponse;
+    private boolean inputClosed;
+    private boolean authenticated;
+    private SelectionKey key;
+
+    LocalSigningConnection(
+            SocketChannel channel,
+            DocumentSigningService documentSigningService,
+            Consumer<LocalSigningConnection> onResponseReady,
+            int maxPipelinedFrames,
+            byte[] secret
+    ) {
+        this.channel = channel;
+        this.documentSigningService = documentSigningService;
+        this.onResponseReady = onResponseReady;
+        this.maxPipelinedFrames = maxPipelinedFrames;
+        this.secret = secret;
+        this.authenticated = secret == null;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            inputClosed = true;
+        }
+        readFrames();
+    }
+
+    /**
+     * Submits the complete frames that were already read, e.g. after responses were written and
+     * the client may pipeline more frames again.
+     */
+    void readFrames() {
+        readBuffer.flip();
+        while (pendingResponses.size() < maxPipelinedFrames && readFrame()) {
+            // Every complete frame is submitted before reading more.
+        }
+        readBuffer.compact();
+    }
+
+    void write() throws IOException {
+        while (true) {
+            if (currentResponse == null) {
+                var next = pendingResponses.peekFirst();
+                if (next == null || !next.isDone()) {
+                    return;
+                }
+                currentResponse = pendingResponses.removeFirst().join();
+            }
+            channel.write(currentResponse);
+            if (currentResponse.hasRemaining()) {
+                return;
+            }
+            currentResponse = null;
+        }
+    }
+
+    /**
+     * Reads more frames only while the client has not pipelined too many of them, and waits to
+     * write only while a response is ready but could not be written at once.
+     */
+    void updateInterest(SelectionKey key) throws IOException {
+        if (inputClosed && pendingResponses.isEmpty() && currentResponse == null) {
+            close();
+            return;
+        }
+        var interest = 0;
+        if (!inputClosed && pendingResponses.size() < maxPipelinedFrames) {
+            interest |= SelectionKey.OP_READ;
+        }
+        if (currentResponse != null) {
+            interest |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(interest);
+    }
+
+    void close() throws IOException {
+        deadline.abandon();
+        pendingResponses.forEach(pendingResponse -> pendingResponse.cancel(false));
+        channel.close();
+    }
+
+    private boolean readFrame() {
+        if (readBuffer.remaining() < LocalSigningFrames.REQUEST_HEADER_LENGTH) {
+            return false;
+        }
+        var start = readBuffer.position();
+        var type = readBuffer.get(start);
+        var priority = LocalSigningFrames.toPriority(readBuffer.get(start + 1));
+        var length = readBuffer.getInt(start + 2);
+        if (length < 0 || length > LocalSigningFrames.MAX_PAYLOAD_LENGTH) {
+            throw new LocalSigningFrames.ProtocolException("Invalid frame length " + length);
+        }
+        // The buffer only grows for authenticated clients, so that others cannot make it allocate.
+        if (!authenticated && (type != LocalSigningFrames.AUTHENTICATE || length > secret.length)) {
+            throw new LocalSigningFrames.ProtocolException("The connection did not authenticate");
+        }
+        var frameLength = LocalSigningFrames.REQUEST_HEADER_LENGTH + length;
+        if (readBuffer.remaining() < frameLength) {
+            ensureCapacity(frameLength);
+            return false;
+        }
+
+        var payload = new byte[length];
+        readBuffer.position(start + LocalSigningFrames.REQUEST_HEADER_LENGTH).get(payload);
+        if (type == LocalSigningFrames.AUTHENTICATE) {
+            return authenticate(payload);
+        }
+        var pendingSignature = switch (type) {
+            case LocalSigningFrames.DOCUMENT -> documentSigningService.signDocument(payload, priority, deadline);
+            case LocalSigningFrames.DIGEST -> documentSigningService.signDigest(payload, priority, deadline);
+            default -> throw new LocalSigningFrames.ProtocolException("Unknown frame type " + type);
+        };
+        var pendingResponse = pendingSignature.handle(
+                (signature, failure) -> failure == null
+                        ? LocalSigningFrames.encodeSignature(signature)
+                        : LocalSigningFrames.encodeError(failure)
+        );
+        pendingResponses.addLast(pendingResponse);
+        pendingResponse.thenRun(() -> onResponseReady.accept(this));
+        return true;
+    }
+
+    // A rejected client is answered, and the frames it pipelined after the secret are dropped.
+    private boolean authenticate(byte[] payload) {
+        var accepted = secret == null || MessageDigest.isEqual(secret, payload);
+        pendingResponses.addLast(CompletableFuture.completedFuture(LocalSigningFrames.encodeAuthentication(accepted)));
+        onResponseReady.accept(this);
+        if (!accepted) {
+            readBuffer.position(readBuffer.limit());
+            inputClosed = true;
+            return false;
+        }
+        authenticated = true;
+        return true;
+    }
+
+    // The buffer is read from, so it is grown with the unread bytes at its start.
+    private void ensureCapacity(int frameLength) {
+        if (readBuffer.capacity() >= frameLength) {
+            return;
+        }
+        var grownBuffer = ByteBuffer.allocate(frameLength);
+        grownBuffer.put(readBuffer).flip();
+        readBuffer = grownBuffer;
+    }
+}
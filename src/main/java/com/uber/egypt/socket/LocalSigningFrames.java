@@ -0,0 +1,103 @@
+package com.uber.egypt.socket;
+
+import com.uber.egypt.document.InvalidDocumentFormatException;
+import com.uber.egypt.signature.DeadlineExceededException;
+import com.uber.egypt.signature.InvalidDigestException;
+import com.uber.egypt.signature.SigningPriority;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The frames of the local signing protocol.
+ * <p>
+ * A request is a type byte ({@link #DOCUMENT} or {@link #DIGEST}), a priority byte
+ * ({@link #BULK} or {@link #INTERACTIVE}), the big-endian 4 byte length of the payload and the
+ * payload: the UTF-8 JSON of one document, or the 32 byte SHA-256 digest of its canonical form.
+ * <p>
+ * A connection that must authenticate starts with an {@link #AUTHENTICATE} request, with the
+ * {@link #BULK} priority and the UTF-8 shared secret as its payload. It is answered with
+ * {@link #OK}, or with {@link #UNAUTHORIZED} after which the connection is closed.
+ * <p>
+ * Every request gets one response, in request order: a status byte ({@link #OK} or an error
+ * status), the big-endian 4 byte length of the payload and the payload: the Base64 encoded
+ * CAdES-BES signature, or the UTF-8 error message.
+ */
+final class LocalSigningFrames {
+    static final byte DOCUMENT = 1;
+    static final byte DIGEST = 2;
+    static final byte AUTHENTICATE = 3;
+    static final byte BULK = 0;
+    static final byte INTERACTIVE = 1;
+    static final byte OK = 0;
+    static final byte INVALID_DOCUMENT = 1;
+    static final byte INVALID_DIGEST = 2;
+    static final byte SIGNATURE_FAILURE = 3;
+    static final byte DEADLINE_EXCEEDED = 4;
+    static final byte UNAUTHORIZED = 5;
+    static final int REQUEST_HEADER_LENGTH = 6;
+    static final int MAX_PAYLOAD_LENGTH = 64 * 1024 * 1024;
+    private static final int RESPONSE_HEADER_LENGTH = 5;
+
+    private LocalSigningFrames() {
+    }
+
+    static SigningPriority toPriority(byte priority) {
+        return switch (priority) {
+            case BULK -> SigningPriority.BULK;
+            case INTERACTIVE -> SigningPriority.INTERACTIVE;
+            default -> throw new ProtocolException("Unknown priority " + priority);
+        };
+    }
+
+    static ByteBuffer encodeSignature(String signature) {
+        return encodeResponse(OK, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    static ByteBuffer encodeError(Throwable failure) {
+        var cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        byte status;
+        if (cause instanceof InvalidDocumentFormatException) {
+            status = INVALID_DOCUMENT;
+        } else if (cause instanceof InvalidDigestException) {
+            status = INVALID_DIGEST;
+        } else if (cause instanceof DeadlineExceededException) {
+            status = DEADLINE_EXCEEDED;
+        } else {
+            status = SIGNATURE_FAILURE;
+        }
+        var rootCause = cause;
+        while (rootCause.getCause() != null && rootCause.getCause() != rootCause) {
+            rootCause = rootCause.getCause();
+        }
+        var message = rootCause.getMessage() != null ? rootCause.getMessage() : rootCause.getClass().getSimpleName();
+        return encodeResponse(status, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ByteBuffer encodeAuthentication(boolean accepted) {
+        return accepted
+                ? encodeResponse(OK, new byte[0])
+                : encodeResponse(UNAUTHORIZED, "Invalid secret".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ByteBuffer encodeResponse(byte status, byte[] payload) {
+        return ByteBuffer
+                .allocate(RESPONSE_HEADER_LENGTH + payload.length)
+                .put(status)
+                .putInt(payload.length)
+                .put(payload)
+                .flip();
+    }
+
+    /**
+     * A frame that does not follow the protocol. The connection is closed, since the start of
+     * the next frame cannot be found.
+     */
+    static class ProtocolException extends RuntimeException {
+
+        ProtocolException(String message) {
+            super(message);
+        }
+    }
+}
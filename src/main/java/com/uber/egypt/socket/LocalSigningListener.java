@@ -0,0 +1,229 @@
+package com.uber.egypt.socket;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.signature.DocumentSigningService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Signs documents and digests sent over a Unix domain socket or a loopback TCP port, for clients
+ * on the same host that do not want to pay for TLS, HTTP, Base64 and the JSON envelope.
+ * <p>
+ * The frames are described in {@link LocalSigningFrames}. A single selector thread serves every
+ * connection, and the frames are signed by the same workers as the HTTP requests.
+ * <p>
+ * Any local user can connect to the TCP port, so it is only opened with a shared secret, which
+ * every TCP connection must send before it can sign.
+ */
+@Component
+public class LocalSigningListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalSigningListener.class);
+    private static final int MAX_PIPELINED_FRAMES = 256;
+    private final FileConfigurationReader configurationReader;
+    private final DocumentSigningService documentSigningService;
+    private final Queue<LocalSigningConnection> readyConnections = new ConcurrentLinkedQueue<>();
+    private final List<ServerSocketChannel> serverChannels = new ArrayList<>();
+    private Selector selector;
+    private Thread selectorThread;
+    private Path socketPath;
+    private byte[] tcpSecret;
+
+    LocalSigningListener(FileConfigurationReader configurationReader, DocumentSigningService documentSigningService) {
+        this.configurationReader = configurationReader;
+        this.documentSigningService = documentSigningService;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        var path = configurationReader.getLocalSocketPath();
+        var port = configurationReader.getLocalSocketPort();
+        if (path == null && port == null) {
+            return;
+        }
+        var secret = configurationReader.getLocalSocketSecret();
+        if (port != null && (secret == null || secret.isBlank())) {
+            throw new IllegalStateException("The local signing port requires a secret (socket.secret)");
+        }
+        selector = Selector.open();
+        if (path != null) {
+            listenOnUnixDomainSocket(Path.of(path));
+        }
+        if (port != null) {
+            var serverChannel = ServerSocketChannel.open(StandardProtocolFamily.INET);
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            tcpSecret = secret.getBytes(StandardCharsets.UTF_8);
+            register(serverChannel);
+            LOGGER.info("Signing on loopback port {}", ((InetSocketAddress) serverChannel.getLocalAddress()).getPort());
+        }
+        selectorThread = new Thread(this::run, "local-socket-listener");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (selectorThread == null) {
+            return;
+        }
+        selectorThread.interrupt();
+        selectorThread.join();
+        for (var serverChannel : serverChannels) {
+            serverChannel.close();
+        }
+        if (socketPath != null) {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    // Any local process that can open the socket can sign, so it is only accessible to the user
+    // running the signer. The socket is bound in a directory only that user can enter, and only
+    // moved to its path once its permissions are restricted, so that no other process can connect
+    // in between. A socket file left behind by a previous run is replaced.
+    private void listenOnUnixDomainSocket(Path path) throws IOException {
+        var absolutePath = path.toAbsolutePath();
+        var privateDirectory = Files.createTempDirectory(
+                absolutePath.getParent(),
+                ".signer-",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------"))
+        );
+        var serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            var boundPath = privateDirectory.resolve(absolutePath.getFileName());
+            serverChannel.bind(UnixDomainSocketAddress.of(boundPath));
+            Files.setPosixFilePermissions(boundPath, PosixFilePermissions.fromString("rw-------"));
+            Files.move(boundPath, absolutePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        } finally {
+            Files.deleteIfExists(privateDirectory.resolve(absolutePath.getFileName()));
+            Files.delete(privateDirectory);
+        }
+        socketPath = absolutePath;
+        register(serverChannel);
+        LOGGER.info("Signing on Unix domain socket {}", absolutePath);
+    }
+
+    private void register(ServerSocketChannel serverChannel) throws IOException {
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        serverChannels.add(serverChannel);
+    }
+
+    private void run() {
+        try (var openSelector = selector) {
+            while (!Thread.currentThread().isInterrupted()) {
+                selector.select();
+                serveReadyConnections();
+                for (var key : selector.selectedKeys()) {
+                    serve(key);
+                }
+                selector.selectedKeys().clear();
+            }
+            for (var key : openSelector.keys()) {
+                if (key.attachment() instanceof LocalSigningConnection connection) {
+                    connection.close();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            LOGGER.error("The local signing listener stopped", e);
+        }
+    }
+
+    private void serve(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept((ServerSocketChannel) key.channel());
+            return;
+        }
+        var connection = (LocalSigningConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.read();
+            }
+            if (key.isWritable()) {
+                connection.write();
+            }
+            connection.updateInterest(key);
+        } catch (IOException | LocalSigningFrames.ProtocolException e) {
+            LOGGER.warn("Closing a local signing connection: {}", e.getMessage());
+            closeQuietly(connection);
+        }
+    }
+
+    private void serveReadyConnections() {
+        LocalSigningConnection connection;
+        while ((connection = readyConnections.poll()) != null) {
+            var key = connection.getKey();
+            if (key == null || !key.isValid()) {
+                continue;
+            }
+            try {
+                connection.write();
+                connection.readFrames();
+                connection.updateInterest(key);
+            } catch (IOException | LocalSigningFrames.ProtocolException e) {
+                LOGGER.warn("Closing a local signing connection: {}", e.getMessage());
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel serverChannel) {
+        try {
+            var channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            var connection = new LocalSigningConnection(
+                    channel,
+                    documentSigningService,
+                    this::onResponseReady,
+                    MAX_PIPELINED_FRAMES,
+                    channel.getLocalAddress() instanceof InetSocketAddress ? tcpSecret : null
+            );
+            connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+        } catch (IOException e) {
+            LOGGER.warn("Could not accept a local signing connection: {}", e.getMessage());
+        }
+    }
+
+    // Called by the signing workers.
+    private void onResponseReady(LocalSigningConnection connection) {
+        readyConnections.add(connection);
+        selector.wakeup();
+    }
+
+    private static void closeQuietly(LocalSigningConnection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            LOGGER.debug("Could not close a local signing connection", e);
+        }
+    }
+}
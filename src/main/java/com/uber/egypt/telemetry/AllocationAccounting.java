@@ -0,0 +1,117 @@
+package com.uber.egypt.telemetry;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Accounts the heap allocations of every batch per stage, and publishes them per client as
+ * {@code signer.allocated.bytes.per.document}, so that the stage and the client behind the
+ * garbage collection pressure can be told apart.
+ * <p>
+ * A batch is started by the controller, which knows the client, and attached to its batch id by
+ * the signing service, so that stages running on the signing workers find it by the batch id
+ * they already carry. Stages of batches nobody started, e.g. of the local socket, are not
+ * measured.
+ */
+@Component
+public class AllocationAccounting implements MeterBinder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AllocationAccounting.class);
+    private static final String UNKNOWN_CLIENT = "unknown";
+    private static final String OTHER_CLIENTS = "other";
+    // Clients are named by a request header, so their number is capped to bound the metrics.
+    private static final int MAX_CLIENTS = 32;
+    private final boolean enabled;
+    private final Map<Long, BatchAllocations> batches = new ConcurrentHashMap<>();
+    private final Set<String> clients = ConcurrentHashMap.newKeySet();
+    private volatile MeterRegistry registry;
+
+    @Autowired
+    AllocationAccounting(FileConfigurationReader configurationReader) {
+        this(configurationReader.isAllocationAccountingEnabled());
+    }
+
+    AllocationAccounting(boolean configured) {
+        this.enabled = configured && BatchAllocations.isSupported();
+        if (configured && !enabled) {
+            LOGGER.warn("Allocation accounting is enabled, but this JVM does not measure the allocations of threads");
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Starts accounting a batch of the given client, named by the client itself.
+     */
+    public BatchAllocations start(String client) {
+        return new BatchAllocations(normalizeClient(client), enabled);
+    }
+
+    /**
+     * Makes the stages of the given batch measured into the allocations, until it is finished.
+     */
+    public void attach(long batchId, BatchAllocations allocations) {
+        if (allocations != null && allocations.isEnabled()) {
+            batches.put(batchId, allocations);
+        }
+    }
+
+    public <T> T measure(long batchId, AllocationStage stage, Supplier<T> work) {
+        var allocations = batches.get(batchId);
+        return allocations == null ? work.get() : allocations.measure(stage, work);
+    }
+
+    /**
+     * Ends accounting the batch and records the bytes it allocated per document.
+     */
+    public void finish(long batchId, int documents) {
+        var allocations = batches.remove(batchId);
+        if (allocations == null) {
+            return;
+        }
+        allocations.setDocuments(documents);
+        var registry = this.registry;
+        if (registry == null || documents == 0) {
+            return;
+        }
+        for (AllocationStage stage : AllocationStage.values()) {
+            DistributionSummary.builder("signer.allocated.bytes.per.document")
+                    .description("The bytes allocated on the heap per document of a batch, per stage")
+                    .baseUnit("bytes")
+                    .tag("stage", stage.getTagValue())
+                    .tag("client", allocations.getClient())
+                    .register(registry)
+                    .record(allocations.getBytesPerDocument(stage));
+        }
+    }
+
+    private String normalizeClient(String client) {
+        if (client == null || client.isBlank()) {
+            return UNKNOWN_CLIENT;
+        }
+        var name = client.trim();
+        if (clients.contains(name)) {
+            return name;
+        }
+        synchronized (clients) {
+            if (clients.size() < MAX_CLIENTS) {
+                clients.add(name);
+                return name;
+            }
+        }
+        return OTHER_CLIENTS;
+    }
+}
@@ -0,0 +1,29 @@
+package com.uber.egypt.telemetry;
+
+/**
+ * The stages of signing a batch whose heap allocations are accounted, see
+ * {@link AllocationAccounting}.
+ */
+public enum AllocationStage {
+    /**
+     * Decoding the Base64 request body.
+     */
+    DECODE,
+    /**
+     * Parsing the documents envelope. Streams decode while they parse, so both count here.
+     */
+    PARSE,
+    CANONICALIZE,
+    /**
+     * Building the CAdES-BES signature, including the token call.
+     */
+    SIGN,
+    /**
+     * Merging the signatures into their documents and serializing the response.
+     */
+    MERGE;
+
+    String getTagValue() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,84 @@
+package com.uber.egypt.telemetry;
+
+import java.lang.management.ManagementFactory;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The bytes allocated on the heap for one batch, per stage, summed over the threads that worked
+ * on it. A stage is measured with the allocation counter of the thread running it, which
+ * includes everything the thread allocated meanwhile, but nothing other threads allocated.
+ */
+public class BatchAllocations {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final String client;
+    private final boolean enabled;
+    private final LongAdder[] bytes;
+    private volatile int documents;
+
+    BatchAllocations(String client, boolean enabled) {
+        this.client = client;
+        this.enabled = enabled;
+        this.bytes = new LongAdder[AllocationStage.values().length];
+        for (int stage = 0; stage < bytes.length; stage++) {
+            bytes[stage] = new LongAdder();
+        }
+    }
+
+    static boolean isSupported() {
+        return THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled();
+    }
+
+    public <T> T measure(AllocationStage stage, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        var before = THREADS.getCurrentThreadAllocatedBytes();
+        try {
+            return work.get();
+        } finally {
+            bytes[stage.ordinal()].add(THREADS.getCurrentThreadAllocatedBytes() - before);
+        }
+    }
+
+    public String getClient() {
+        return client;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getDocuments() {
+        return documents;
+    }
+
+    void setDocuments(int documents) {
+        this.documents = documents;
+    }
+
+    public long getBytes(AllocationStage stage) {
+        return bytes[stage.ordinal()].sum();
+    }
+
+    public long getBytesPerDocument(AllocationStage stage) {
+        return getBytes(stage) / Math.max(1, documents);
+    }
+
+    /**
+     * The bytes per document of every stage and in total, e.g.
+     * {@code decode=1210, parse=5120, canonicalize=4380, sign=61240, merge=6630, total=78580}.
+     */
+    public String describeBytesPerDocument() {
+        var description = new StringJoiner(", ");
+        long total = 0;
+        for (AllocationStage stage : AllocationStage.values()) {
+            var stageBytes = getBytesPerDocument(stage);
+            total += stageBytes;
+            description.add(stage.getTagValue() + "=" + stageBytes);
+        }
+        return description.add("total=" + total).toString();
+    }
+}
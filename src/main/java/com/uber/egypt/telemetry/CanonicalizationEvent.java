@@ -0,0 +1,11 @@
+package com.uber.egypt.telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.uber.egypt.Canonicalization")
+@Label("Canonicalization")
+@Description("Transforming a document to the canonical format of the ETA")
+public class CanonicalizationEvent extends SigningStageEvent {
+}
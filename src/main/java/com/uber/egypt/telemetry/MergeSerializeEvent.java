@@ -0,0 +1,11 @@
+package com.uber.egypt.telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.uber.egypt.MergeSerialize")
+@Label("Merge and Serialize")
+@Description("Merging a signature into its document, or serializing the response of a batch")
+public class MergeSerializeEvent extends SigningStageEvent {
+}
@@ -0,0 +1,11 @@
+package com.uber.egypt.telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.uber.egypt.RequestDecode")
+@Label("Request Decode")
+@Description("Decoding the Base64 body of a request and parsing its documents envelope")
+public class RequestDecodeEvent extends SigningStageEvent {
+}
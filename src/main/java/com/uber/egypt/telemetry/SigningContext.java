@@ -0,0 +1,56 @@
+package com.uber.egypt.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The batch and document a thread is currently working on, so that stages deep inside the
+ * signing strategy can be attributed without threading the attributes through every call.
+ */
+public class SigningContext {
+    private static final AtomicLong BATCH_IDS = new AtomicLong();
+    private static final ThreadLocal<Integer> TOKEN_SLOT = new ThreadLocal<>();
+    private static final ThreadLocal<Document> CURRENT_DOCUMENT = new ThreadLocal<>();
+
+    private SigningContext() {
+    }
+
+    public static long nextBatchId() {
+        return BATCH_IDS.incrementAndGet();
+    }
+
+    /**
+     * Marks the current thread as the signing worker of the given slot, for its whole lifetime.
+     */
+    public static void assignTokenSlot(int tokenSlot) {
+        TOKEN_SLOT.set(tokenSlot);
+    }
+
+    public static int currentTokenSlot() {
+        var tokenSlot = TOKEN_SLOT.get();
+        return tokenSlot == null ? SigningStageEvent.NO_TOKEN_SLOT : tokenSlot;
+    }
+
+    public static <T> T withDocument(long batchId, long documentSize, Supplier<T> work) {
+        var previous = CURRENT_DOCUMENT.get();
+        CURRENT_DOCUMENT.set(new Document(batchId, documentSize));
+        try {
+            return work.get();
+        } finally {
+            CURRENT_DOCUMENT.set(previous);
+        }
+    }
+
+    public static long currentBatchId() {
+        var document = CURRENT_DOCUMENT.get();
+        return document == null ? 0 : document.batchId();
+    }
+
+    public static long currentDocumentSize() {
+        var document = CURRENT_DOCUMENT.get();
+        return document == null ? 0 : document.documentSize();
+    }
+
+    private record Document(long batchId, long documentSize) {
+    }
+}
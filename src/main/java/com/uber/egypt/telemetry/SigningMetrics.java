@@ -0,0 +1,48 @@
+package com.uber.egypt.telemetry;
+
+import com.uber.egypt.signature.CadesBesSigningStrategy;
+import com.uber.egypt.signature.SigningPriority;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the state of the signing workers and of the token, available under
+ * {@code /actuator/metrics}.
+ */
+@Component
+public class SigningMetrics implements MeterBinder {
+    private final CadesBesSigningStrategy cadesBesSigningStrategy;
+
+    SigningMetrics(CadesBesSigningStrategy cadesBesSigningStrategy) {
+        this.cadesBesSigningStrategy = cadesBesSigningStrategy;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("signer.token.concurrency.limit", cadesBesSigningStrategy, CadesBesSigningStrategy::getTokenConcurrencyLimit)
+                .description("The number of token calls currently allowed to run concurrently")
+                .register(registry);
+        Gauge.builder("signer.token.calls.inflight", cadesBesSigningStrategy, CadesBesSigningStrategy::getTokenCallsInFlight)
+                .description("The number of token calls currently running")
+                .register(registry);
+        for (SigningPriority priority : SigningPriority.values()) {
+            Gauge.builder("signer.queue.depth", cadesBesSigningStrategy, strategy -> strategy.getQueueDepth(priority))
+                    .description("The number of documents waiting for a signing worker")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(registry);
+        }
+        FunctionCounter.builder("signer.signatures", cadesBesSigningStrategy, CadesBesSigningStrategy::getCompletedSignatureCount)
+                .description("The number of signatures created")
+                .register(registry);
+        FunctionCounter.builder("signer.deadline.dropped", cadesBesSigningStrategy, CadesBesSigningStrategy::getDroppedDocumentCount)
+                .description("The number of documents dropped because their request passed its deadline or was abandoned")
+                .register(registry);
+        FunctionCounter.builder("signer.deadline.token.time.saved", cadesBesSigningStrategy, CadesBesSigningStrategy::getSavedTokenSeconds)
+                .description("The estimated token time not spent on dropped documents")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
@@ -0,0 +1,53 @@
+package com.uber.egypt.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * A stage of signing a batch, recorded with JDK Flight Recorder.
+ * <p>
+ * Nothing is recorded unless a recording is running, so the events can be left in production and
+ * a recording started on demand without redeploying, e.g. with {@code jcmd <pid> JFR.start}.
+ */
+@Category({"Egypt Signer", "Signing"})
+@StackTrace(false)
+public abstract class SigningStageEvent extends Event {
+    public static final int NO_TOKEN_SLOT = -1;
+
+    @Label("Batch Id")
+    @Description("Identifies the request the document belongs to")
+    long batchId;
+
+    @Label("Document Size")
+    @Description("The size of the document, or of the whole request for batch-level stages, in UTF-8 bytes")
+    long documentSize;
+
+    @Label("Token Slot")
+    @Description("The signing worker the stage ran on, or -1 outside of the signing workers")
+    int tokenSlot;
+
+    /**
+     * Commits the event with the attributes of the current document, if the event is enabled and
+     * above its threshold.
+     */
+    public void commit(long batchId, long documentSize) {
+        end();
+        commitEnded(batchId, documentSize);
+    }
+
+    /**
+     * Commits an event whose end was already marked with {@link #end()}, for stages whose
+     * attributes are only known after the stage is over.
+     */
+    public void commitEnded(long batchId, long documentSize) {
+        if (shouldCommit()) {
+            this.batchId = batchId;
+            this.documentSize = documentSize;
+            this.tokenSlot = SigningContext.currentTokenSlot();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.uber.egypt.telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.uber.egypt.TokenQueueWait")
+@Label("Token Queue Wait")
+@Description("Waiting for a signing worker to pick up a document")
+public class TokenQueueWaitEvent extends SigningStageEvent {
+}
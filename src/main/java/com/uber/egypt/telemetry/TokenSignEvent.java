@@ -0,0 +1,11 @@
+package com.uber.egypt.telemetry;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.uber.egypt.TokenSign")
+@Label("Token Sign")
+@Description("The RSA signature call on the signing key, i.e. the PKCS#11 call for the hardware token")
+public class TokenSignEvent extends SigningStageEvent {
+}
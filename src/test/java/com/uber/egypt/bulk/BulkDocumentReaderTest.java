@@ -0,0 +1,87 @@
+package com.uber.egypt.bulk;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Testing strategy
+ * <p>
+ * Small input files are written to a temporary directory in both formats, and the documents
+ * read from them are compared with the documents written, after skipping the first document as
+ * a resumed job does.
+ */
+public class BulkDocumentReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void ndjson_reader_should_skip_blank_lines_and_keep_the_bytes_of_every_line() throws IOException {
+        // Given.
+        var input = directory.resolve("documents.ndjson");
+        Files.writeString(input, "{\"internalID\":\"1\"}\n\n{\"internalID\":\"٢\"}\r\n  \n{\"internalID\":\"3\"}", StandardCharsets.UTF_8);
+
+        // When.
+        try (var reader = BulkDocumentReader.open(input, BulkInputFormat.NDJSON)) {
+            var skipped = reader.skip();
+            var second = reader.next();
+            var third = reader.next();
+            var end = reader.next();
+
+            // Then.
+            then(skipped).isTrue();
+            then(new String(second.json(), StandardCharsets.UTF_8)).isEqualTo("{\"internalID\":\"٢\"}\r");
+            then(new String(third.json(), StandardCharsets.UTF_8)).isEqualTo("{\"internalID\":\"3\"}");
+            then(end).isNull();
+        }
+    }
+
+    @Test
+    public void ndjson_reader_should_read_lines_that_span_mapped_windows() throws IOException {
+        // Given.
+        var input = directory.resolve("documents.ndjson");
+        Files.writeString(input, "{\"internalID\":\"1\"}\n   \n{\"internalID\":\"22\"}\n{}\n", StandardCharsets.UTF_8);
+
+        // When.
+        try (var reader = new BulkDocumentReader.NdjsonReader(new MappedFileInputStream(input, 8))) {
+            var first = reader.next();
+            var second = reader.next();
+            var third = reader.next();
+            var end = reader.next();
+
+            // Then.
+            then(new String(first.json(), StandardCharsets.UTF_8)).isEqualTo("{\"internalID\":\"1\"}");
+            then(new String(second.json(), StandardCharsets.UTF_8)).isEqualTo("{\"internalID\":\"22\"}");
+            then(new String(third.json(), StandardCharsets.UTF_8)).isEqualTo("{}");
+            then(end).isNull();
+        }
+    }
+
+    @Test
+    public void envelope_reader_should_stream_the_documents_array() throws IOException {
+        // Given.
+        var input = directory.resolve("documents.json");
+        Files.writeString(input, "{\"version\":1,\"documents\":[{\"internalID\":\"1\"},[],{\"internalID\":\"3\"}]}", StandardCharsets.UTF_8);
+
+        // When.
+        try (var reader = BulkDocumentReader.open(input, BulkInputFormat.ENVELOPE)) {
+            var skipped = reader.skip();
+            var second = reader.next();
+            var third = reader.next();
+            var end = reader.next();
+
+            // Then.
+            then(skipped).isTrue();
+            then(second.parsed().isJsonArray()).isTrue();
+            then(third.parsed().getAsJsonObject().get("internalID").getAsString()).isEqualTo("3");
+            then(end).isNull();
+            then(BulkInputFormat.fromName(null, input)).isEqualTo(BulkInputFormat.ENVELOPE);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.uber.egypt.cluster;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * Nodes report heartbeats to a registry configured with two node URLs, and the registry is checked
+ * for the nodes it accepted and for the node it routes chunks to.
+ */
+public class ClusterRegistryTest {
+    private static final String NODE_A = "https://node-a:8444";
+    private static final String NODE_B = "https://node-b:8444";
+    private ClusterRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        var configurationReader = mock(FileConfigurationReader.class);
+        when(configurationReader.getClusterNodeUrls()).thenReturn(List.of(NODE_A, NODE_B + "/"));
+        when(configurationReader.getClusterHeartbeatIntervalMillis()).thenReturn(60_000L);
+        registry = new ClusterRegistry(configurationReader);
+    }
+
+    @Test
+    public void heartbeat_should_register_only_configured_nodes() {
+        // When.
+        var registeredA = registry.heartbeat(NODE_A + "/", 0, 10);
+        var registeredB = registry.heartbeat(NODE_B, 0, 10);
+        var registeredOther = registry.heartbeat("https://attacker:8444", 0, 1000);
+
+        // Then.
+        then(registeredA).isTrue();
+        then(registeredB).isTrue();
+        then(registeredOther).isFalse();
+        then(registry.getLiveNodes()).extracting(NodeStatus::getUrl).containsExactlyInAnyOrder(NODE_A, NODE_B);
+    }
+
+    @Test
+    public void assign_should_pick_the_node_expected_to_finish_first() {
+        // Given.
+        registry.heartbeat(NODE_A, 100, 10);
+        registry.heartbeat(NODE_B, 0, 10);
+
+        // When.
+        var first = registry.assign(50, null);
+        var second = registry.assign(60, null);
+        var excluded = registry.assign(10, NODE_B);
+
+        // Then.
+        then(first).get().extracting(NodeStatus::getUrl).isEqualTo(NODE_B);
+        then(second).get().extracting(NodeStatus::getUrl).isEqualTo(NODE_B);
+        then(excluded).get().extracting(NodeStatus::getUrl).isEqualTo(NODE_A);
+        then(first.get().getAssignedDocuments()).isEqualTo(110);
+    }
+
+    @Test
+    public void assign_should_not_count_documents_routed_before_the_last_heartbeat_twice() {
+        // Given.
+        registry.heartbeat(NODE_A, 0, 10);
+        registry.heartbeat(NODE_B, 60, 10);
+        registry.assign(50, null);
+        // The queue of node A now holds the routed documents.
+        registry.heartbeat(NODE_A, 50, 10);
+
+        // When.
+        var node = registry.assign(10, null);
+
+        // Then.
+        then(node).get().extracting(NodeStatus::getUrl).isEqualTo(NODE_A);
+        then(node.get().getAssignedDocuments()).isEqualTo(60);
+    }
+
+    @Test
+    public void assign_should_find_no_node_without_heartbeats() {
+        // When.
+        var node = registry.assign(10, null);
+
+        // Then.
+        then(node).isEmpty();
+    }
+}
@@ -0,0 +1,279 @@
+package com.uber.egypt.cluster;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.signature.SigningPriority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * The coordinator signs on fake nodes that decode chunks like the signing server does, mark every
+ * document with the node that signed it and record how many chunks they served at once. Nodes can
+ * be made to fail every request, to report a load, or to reject single documents, and the merged
+ * response is checked for the node and the index of every document.
+ */
+public class ClusterSigningServiceTest {
+    private static final long READ_TIMEOUT_MILLIS = 500;
+    private final Gson gson = new Gson();
+    private final List<FakeNode> nodes = new ArrayList<>();
+    private ClusterRegistry registry;
+    private ClusterSigningService signingService;
+
+    @AfterEach
+    public void tearDown() {
+        if (signingService != null) {
+            signingService.shutdown();
+        }
+        nodes.forEach(node -> node.server.stop(0));
+    }
+
+    @Test
+    public void generateSignedDocuments_should_route_chunks_to_the_fastest_node_and_keep_input_order() throws IOException {
+        // Given.
+        var fast = startNode(false);
+        var busy = startNode(false);
+        startCoordinator(2, 4);
+        heartbeat(fast, 0, 100);
+        heartbeat(busy, 500, 10);
+
+        // When.
+        var signedDocuments = sign(7);
+
+        // Then.
+        then(signedDocuments).hasSize(7);
+        for (int index = 0; index < 7; index++) {
+            var document = signedDocuments.get(index).getAsJsonObject();
+            then(document.get("internalID").getAsString()).isEqualTo("D" + index);
+            then(document.get("signedBy").getAsString()).isEqualTo(fast.url);
+        }
+        then(fast.chunks.get()).isEqualTo(4);
+        then(busy.chunks.get()).isZero();
+    }
+
+    @Test
+    public void generateSignedDocuments_should_retry_the_chunks_of_a_failing_node_on_another_node() throws IOException {
+        // Given.
+        var failing = startNode(true);
+        var healthy = startNode(false);
+        startCoordinator(2, 4);
+        heartbeat(failing, 0, 100);
+        heartbeat(healthy, 0, 10);
+
+        // When.
+        var signedDocuments = sign(4);
+
+        // Then.
+        then(signedDocuments).hasSize(4);
+        signedDocuments.forEach(document -> then(document.getAsJsonObject().get("signedBy").getAsString()).isEqualTo(healthy.url));
+        then(failing.chunks.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void generateSignedDocuments_should_retry_the_chunks_of_a_hanging_node_after_the_read_timeout() throws IOException {
+        // Given.
+        var hanging = startNode(false);
+        hanging.latencyMillis = 10 * READ_TIMEOUT_MILLIS;
+        var healthy = startNode(false);
+        startCoordinator(2, 4);
+        heartbeat(hanging, 0, 100);
+        heartbeat(healthy, 0, 10);
+
+        // When.
+        var signedDocuments = sign(2);
+
+        // Then.
+        then(signedDocuments).hasSize(2);
+        signedDocuments.forEach(document -> then(document.getAsJsonObject().get("signedBy").getAsString()).isEqualTo(healthy.url));
+        then(hanging.chunks.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void generateSignedDocuments_should_report_node_failures_and_node_errors_at_their_batch_index() throws IOException {
+        // Given.
+        var failing = startNode(true);
+        var otherFailing = startNode(true);
+        startCoordinator(3, 4);
+        heartbeat(failing, 0, 10);
+        heartbeat(otherFailing, 0, 10);
+
+        // When.
+        var signedDocuments = sign(5);
+
+        // Then.
+        then(signedDocuments).hasSize(5);
+        for (int index = 0; index < 5; index++) {
+            var entry = signedDocuments.get(index).getAsJsonObject();
+            then(entry.get("index").getAsInt()).isEqualTo(index);
+            then(entry.getAsJsonObject("error").get("type").getAsString()).isEqualTo("NODE_FAILURE");
+        }
+    }
+
+    @Test
+    public void generateSignedDocuments_should_reindex_the_error_entries_of_a_node() throws IOException {
+        // Given.
+        var node = startNode(false);
+        node.rejected = "D4";
+        startCoordinator(3, 4);
+        heartbeat(node, 0, 10);
+
+        // When.
+        var signedDocuments = sign(6);
+
+        // Then.
+        var rejected = signedDocuments.get(4).getAsJsonObject();
+        then(rejected.get("index").getAsInt()).isEqualTo(4);
+        then(rejected.getAsJsonObject("error").get("type").getAsString()).isEqualTo("INVALID_DOCUMENT");
+        then(signedDocuments.get(5).getAsJsonObject().get("signedBy").getAsString()).isEqualTo(node.url);
+    }
+
+    @Test
+    public void generateSignedDocuments_should_send_at_most_the_configured_chunks_to_a_node_at_once() throws IOException {
+        // Given.
+        var node = startNode(false);
+        node.latencyMillis = 50;
+        startCoordinator(1, 2);
+        heartbeat(node, 0, 10);
+
+        // When.
+        var signedDocuments = sign(8);
+
+        // Then.
+        then(signedDocuments).hasSize(8);
+        then(node.chunks.get()).isEqualTo(8);
+        then(node.maxConcurrentChunks.get()).isEqualTo(2);
+    }
+
+    private JsonArray sign(int documentCount) {
+        var documents = new JsonArray();
+        for (int index = 0; index < documentCount; index++) {
+            var document = new JsonObject();
+            document.addProperty("internalID", "D" + index);
+            documents.add(document);
+        }
+        var envelope = new JsonObject();
+        envelope.add("documents", documents);
+        var response = signingService.generateSignedDocuments(
+                envelope.toString().getBytes(StandardCharsets.UTF_8),
+                SigningPriority.BULK,
+                null
+        );
+        return gson.fromJson(response, JsonObject.class).getAsJsonArray("documents");
+    }
+
+    private void startCoordinator(int chunkSize, int maxChunksPerNode) {
+        var configurationReader = mock(FileConfigurationReader.class);
+        when(configurationReader.getClusterNodeUrls()).thenReturn(nodes.stream().map(node -> node.url).toList());
+        when(configurationReader.getClusterHeartbeatIntervalMillis()).thenReturn(60_000L);
+        when(configurationReader.getClusterChunkSize()).thenReturn(chunkSize);
+        when(configurationReader.getClusterMaxChunksPerNode()).thenReturn(maxChunksPerNode);
+        when(configurationReader.getClusterReadTimeoutMillis()).thenReturn(READ_TIMEOUT_MILLIS);
+        when(configurationReader.getUserName()).thenReturn("egypt_signing");
+        when(configurationReader.getPassword()).thenReturn("password");
+        registry = new ClusterRegistry(configurationReader);
+        signingService = new ClusterSigningService(registry, configurationReader);
+    }
+
+    private void heartbeat(FakeNode node, int queueDepth, double signRate) {
+        then(registry.heartbeat(node.url, queueDepth, signRate)).isTrue();
+    }
+
+    private FakeNode startNode(boolean failing) throws IOException {
+        var node = new FakeNode(failing);
+        nodes.add(node);
+        return node;
+    }
+
+    private class FakeNode {
+        private final HttpServer server;
+        private final String url;
+        private final boolean failing;
+        private final AtomicInteger chunks = new AtomicInteger();
+        private final AtomicInteger concurrentChunks = new AtomicInteger();
+        private final AtomicInteger maxConcurrentChunks = new AtomicInteger();
+        private volatile String rejected;
+        private volatile long latencyMillis;
+
+        FakeNode(boolean failing) throws IOException {
+            this.failing = failing;
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            this.server.setExecutor(Executors.newCachedThreadPool());
+            this.server.createContext("/sign", this::sign);
+            this.server.start();
+            this.url = "http://localhost:" + server.getAddress().getPort();
+        }
+
+        private void sign(HttpExchange exchange) throws IOException {
+            chunks.incrementAndGet();
+            maxConcurrentChunks.accumulateAndGet(concurrentChunks.incrementAndGet(), Math::max);
+            try (exchange) {
+                var body = Base64.getDecoder().decode(exchange.getRequestBody().readAllBytes());
+                sleep(latencyMillis);
+                if (failing) {
+                    exchange.sendResponseHeaders(500, -1);
+                    return;
+                }
+                var documents = gson
+                        .fromJson(new String(body, StandardCharsets.UTF_8), JsonObject.class)
+                        .getAsJsonArray("documents");
+                var signedDocuments = new JsonArray();
+                for (int index = 0; index < documents.size(); index++) {
+                    var document = documents.get(index).getAsJsonObject();
+                    signedDocuments.add(document.get("internalID").getAsString().equals(rejected)
+                            ? error(index)
+                            : signed(document));
+                }
+                var response = new JsonObject();
+                response.add("documents", signedDocuments);
+                var bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                exchange.getResponseBody().write(bytes);
+            } finally {
+                concurrentChunks.decrementAndGet();
+            }
+        }
+
+        private JsonObject signed(JsonObject document) {
+            document.addProperty("signedBy", url);
+            return document;
+        }
+
+        private static JsonObject error(int index) {
+            var error = new JsonObject();
+            error.addProperty("type", "INVALID_DOCUMENT");
+            error.addProperty("message", "Rejected by the node");
+            var entry = new JsonObject();
+            entry.addProperty("index", index);
+            entry.add("error", error);
+            return entry;
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.uber.egypt.configuration;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * The filter is run on mock requests, and the request passed down the chain is read the way
+ * Spring reads request bodies, including its Content-Length header, or the way a servlet reads
+ * them without blocking, with the container's callbacks made by the test.
+ */
+public class RequestDecompressionFilterTest {
+    private static final byte[] BODY = "eyJkb2N1bWVudHMiOltdfQ==".repeat(100).getBytes(StandardCharsets.UTF_8);
+    private static final long MAX_DECOMPRESSED_BYTES = 64 * 1024;
+
+    @Test
+    public void doFilter_should_decompress_gzip_request_bodies() throws Exception {
+        // Given.
+        var request = new MockHttpServletRequest("POST", "/sign");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(gzip(BODY));
+        var chain = new MockFilterChain();
+
+        // When.
+        filter().doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Then.
+        var filtered = new ServletServerHttpRequest((HttpServletRequest) chain.getRequest());
+        then(filtered.getHeaders().getContentLength()).isEqualTo(-1);
+        then(filtered.getHeaders().containsKey("Content-Encoding")).isFalse();
+        then(filtered.getBody().readAllBytes()).isEqualTo(BODY);
+    }
+
+    @Test
+    public void doFilter_should_pass_uncompressed_request_bodies_on() throws Exception {
+        // Given.
+        var request = new MockHttpServletRequest("POST", "/sign");
+        request.setContent(BODY);
+        var chain = new MockFilterChain();
+
+        // When.
+        filter().doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Then.
+        then(chain.getRequest()).isSameAs(request);
+    }
+
+    @Test
+    public void doFilter_should_reject_bodies_that_decompress_past_the_maximum() throws Exception {
+        // Given.
+        var compressed = gzip(new byte[(int) MAX_DECOMPRESSED_BYTES * 16]);
+        var request = new MockHttpServletRequest("POST", "/sign");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContent(compressed);
+        var response = new MockHttpServletResponse();
+        var chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                request.getInputStream().readAllBytes();
+            }
+        });
+
+        // When.
+        filter().doFilter(request, response, chain);
+
+        // Then.
+        then(compressed.length).isLessThan((int) MAX_DECOMPRESSED_BYTES / 16);
+        then(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+    }
+
+    @Test
+    public void doFilter_should_decompress_bodies_read_without_blocking() throws Exception {
+        // Given.
+        var compressed = new NonBlockingInputStream(gzip(BODY));
+        var request = new MockHttpServletRequest("POST", "/sign") {
+            @Override
+            public ServletInputStream getInputStream() {
+                return compressed;
+            }
+        };
+        request.addHeader("Content-Encoding", "gzip");
+        var chain = new MockFilterChain();
+        filter().doFilter(request, new MockHttpServletResponse(), chain);
+        var body = chain.getRequest().getInputStream();
+        var decompressed = new ByteArrayOutputStream();
+        var allDataRead = new AtomicBoolean();
+
+        // When.
+        body.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                var buffer = new byte[100];
+                int read;
+                while (body.isReady() && (read = body.read(buffer)) >= 0) {
+                    decompressed.write(buffer, 0, read);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead.set(true);
+            }
+
+            @Override
+            public void onError(Throwable failure) {
+                throw new AssertionError(failure);
+            }
+        });
+        then(body.isReady()).isFalse();
+        compressed.deliver();
+
+        // Then.
+        then(decompressed.toByteArray()).isEqualTo(BODY);
+        then(body.isFinished()).isTrue();
+        then(allDataRead).isTrue();
+    }
+
+    private static RequestDecompressionFilter filter() {
+        var configurationReader = mock(FileConfigurationReader.class);
+        when(configurationReader.getMaxDecompressedRequestBytes()).thenReturn(MAX_DECOMPRESSED_BYTES);
+        return new RequestDecompressionFilter(configurationReader);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    // Makes the container's callbacks when the test delivers the body, a few bytes at a time.
+    private static class NonBlockingInputStream extends ServletInputStream {
+        private final ByteArrayInputStream body;
+        private ReadListener readListener;
+        private int readable;
+
+        NonBlockingInputStream(byte[] body) {
+            this.body = new ByteArrayInputStream(body);
+        }
+
+        void deliver() throws IOException {
+            while (body.available() > 0) {
+                readable = 7;
+                readListener.onDataAvailable();
+            }
+            readListener.onAllDataRead();
+        }
+
+        @Override
+        public int read() {
+            if (readable == 0) {
+                throw new IllegalStateException("Read while not ready");
+            }
+            readable--;
+            return body.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (readable == 0) {
+                throw new IllegalStateException("Read while not ready");
+            }
+            var read = body.read(buffer, offset, Math.min(length, readable));
+            readable -= Math.max(read, 0);
+            return read;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return body.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return readable > 0 && body.available() > 0;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            this.readListener = readListener;
+        }
+    }
+}
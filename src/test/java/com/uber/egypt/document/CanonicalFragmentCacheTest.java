@@ -0,0 +1,122 @@
+package com.uber.egypt.document;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Testing strategy
+ * <p>
+ * Differential tests: canonicalizing the documents of a batch with a shared cache must produce
+ * exactly the bytes of canonicalizing every document on its own, for the sample invoices, for
+ * sub-objects that only differ in what a structural hash could confuse (property order, numbers
+ * and strings of the same text, nulls), and for batches mixing repeated and unique sub-objects.
+ * A property whose fragments are not found is no longer cached.
+ */
+public class CanonicalFragmentCacheTest {
+    private static final Gson GSON = new Gson();
+
+    @Test
+    public void canonicalizeToUtf8_should_produce_the_same_bytes_with_a_cache_for_the_sample_invoices() throws IOException {
+        // Given.
+        var documents = GSON
+                .fromJson(Files.readString(Path.of("docu/input.json")), JsonObject.class)
+                .getAsJsonArray("documents");
+        var cache = new CanonicalFragmentCache();
+
+        for (int pass = 0; pass < 2; pass++) {
+            for (JsonElement document : documents) {
+                // When.
+                var canonicalized = EtaDocumentCanonicalizer.canonicalizeToUtf8(document, cache);
+
+                // Then.
+                then(canonicalized).isEqualTo(EtaDocumentCanonicalizer.canonicalizeToUtf8(document));
+            }
+        }
+    }
+
+    @Test
+    public void canonicalizeToUtf8_should_not_reuse_fragments_of_similar_sub_objects() {
+        // Given.
+        var documents = List.of(
+                "{\"issuer\":{\"id\":\"1\",\"name\":\"A\"},\"receiver\":{\"id\":\"7\",\"type\":\"B\"}}",
+                "{\"issuer\":{\"name\":\"A\",\"id\":\"1\"},\"receiver\":{\"id\":7,\"type\":\"B\"}}",
+                "{\"issuer\":{\"id\":\"1\",\"name\":null},\"receiver\":{\"id\":\"7\",\"type\":[\"B\"]}}",
+                "{\"issuer\":{\"id\":\"1\",\"name\":\"null\"},\"receiver\":{\"id\":\"7\",\"type\":{\"B\":null}}}",
+                "{\"issuer\":{\"id\":\"1\",\"name\":\"A\",\"address\":{}},\"receiver\":{\"id\":\"7\",\"type\":\"B\"}}",
+                "{\"issuer\":{\"id\":\"1\",\"name\":\"A\"},\"receiver\":{\"id\":\"7\",\"type\":\"B\"}}"
+        );
+        var cache = new CanonicalFragmentCache();
+
+        for (var json : documents) {
+            var document = GSON.fromJson(json, JsonObject.class);
+
+            // When.
+            var canonicalized = EtaDocumentCanonicalizer.canonicalizeToUtf8(document, cache);
+
+            // Then.
+            then(canonicalized).isEqualTo(EtaDocumentCanonicalizer.canonicalizeToUtf8(document));
+        }
+    }
+
+    @Test
+    public void canonicalizeToUtf8_should_produce_the_same_bytes_with_a_cache_for_random_batches() {
+        // Given.
+        var random = new Random(20231101L);
+        var issuers = List.of(
+                "{\"type\":\"B\",\"id\":\"100\",\"name\":\"شركة\",\"address\":{\"country\":\"EG\",\"street\":\"1\"}}",
+                "{\"id\":\"100\",\"type\":\"B\",\"name\":\"شركة\",\"address\":{\"country\":\"EG\",\"street\":\"1\"}}",
+                "{\"type\":\"B\",\"id\":100,\"name\":\"شركة\",\"address\":{\"country\":\"EG\",\"street\":\"1\"}}"
+        );
+        var cache = new CanonicalFragmentCache();
+
+        for (int sample = 0; sample < 500; sample++) {
+            var document = new JsonObject();
+            document.add("issuer", GSON.fromJson(issuers.get(random.nextInt(issuers.size())), JsonObject.class));
+            var receiver = new JsonObject();
+            receiver.addProperty("id", random.nextInt(sample < 250 ? 1_000_000 : 2));
+            receiver.addProperty("name", "r" + random.nextInt(3));
+            document.add("receiver", receiver);
+            var unitValue = new JsonObject();
+            unitValue.addProperty("currencySold", "EGP");
+            unitValue.add("amountEGP", new JsonPrimitive(random.nextInt(3)));
+            document.add("unitValue", unitValue);
+
+            // When.
+            var canonicalized = EtaDocumentCanonicalizer.canonicalizeToUtf8(document, cache);
+
+            // Then.
+            then(canonicalized).isEqualTo(EtaDocumentCanonicalizer.canonicalizeToUtf8(document));
+        }
+    }
+
+    @Test
+    public void get_should_stop_caching_a_property_whose_fragments_are_not_found() {
+        // Given.
+        var cache = new CanonicalFragmentCache();
+        for (int receiver = 0; receiver < 100; receiver++) {
+            var value = GSON.fromJson("{\"id\":\"" + receiver + "\"}", JsonObject.class);
+            cache.get("receiver", value, () -> new byte[0]);
+        }
+        var issuer = GSON.fromJson("{\"id\":\"1\"}", JsonObject.class);
+        cache.get("issuer", issuer, () -> new byte[]{1});
+
+        // When.
+        var receiver = cache.get("receiver", GSON.fromJson("{\"id\":\"0\"}", JsonObject.class), () -> new byte[0]);
+        var cachedIssuer = cache.get("issuer", issuer.deepCopy(), () -> new byte[]{2});
+
+        // Then.
+        then(receiver).isNull();
+        then(cachedIssuer).containsExactly(1);
+    }
+}
@@ -0,0 +1,114 @@
+package com.uber.egypt.document;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Testing strategy
+ * <p>
+ * Differential tests: the specialized canonicalizer must produce exactly the bytes of the
+ * generic {@link JsonUtils#canonicalize(String)} for the sample invoices, for documents mixing
+ * known and unknown fields, and for randomly generated documents.
+ */
+public class EtaDocumentCanonicalizerTest {
+    private static final List<String> PROPERTY_NAMES = List.of(
+            "issuer", "receiver", "invoiceLines", "taxTotals", "amount", "internalID", "id", "value",
+            "unknownField", "customerReference", "إضافي", "ß", "nested", ""
+    );
+
+    @Test
+    public void canonicalizeToUtf8_should_match_the_generic_canonicalizer_for_the_sample_invoices() throws IOException {
+        // Given.
+        var documents = new Gson()
+                .fromJson(Files.readString(Path.of("docu/input.json")), JsonObject.class)
+                .getAsJsonArray("documents");
+
+        for (JsonElement document : documents) {
+            // When.
+            var canonicalized = EtaDocumentCanonicalizer.canonicalizeToUtf8(document);
+
+            // Then.
+            then(canonicalized).isEqualTo(genericCanonicalization(document));
+        }
+    }
+
+    @Test
+    public void canonicalizeToUtf8_should_match_the_generic_canonicalizer_for_unknown_fields() {
+        // Given.
+        var document = new Gson().fromJson("""
+                {"issuer":{"name":"شركة","extraCode":"X1","address":null},
+                 "customFields":[{"key":"a","values":[1,2.50,[true,null]]},[]],
+                 "invoiceLines":[{"itemCode":"EG-1","notes":["n1","n2"],"quantity":1e3}],
+                 "Internalid":"upper-cased by the generic path"}
+                """, JsonObject.class);
+
+        // When.
+        var canonicalized = EtaDocumentCanonicalizer.canonicalizeToUtf8(document);
+
+        // Then.
+        then(canonicalized).isEqualTo(genericCanonicalization(document));
+    }
+
+    @Test
+    public void canonicalizeToUtf8_should_match_the_generic_canonicalizer_for_random_documents() {
+        // Given.
+        var random = new Random(20231101L);
+
+        for (int sample = 0; sample < 500; sample++) {
+            var document = randomObject(random, 4);
+
+            // When.
+            var canonicalized = EtaDocumentCanonicalizer.canonicalizeToUtf8(document);
+
+            // Then.
+            then(canonicalized).isEqualTo(genericCanonicalization(document));
+        }
+    }
+
+    private static byte[] genericCanonicalization(JsonElement document) {
+        return JsonUtils.canonicalize(document.toString()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static JsonObject randomObject(Random random, int depth) {
+        var object = new JsonObject();
+        var properties = random.nextInt(6);
+        for (int property = 0; property < properties; property++) {
+            object.add(PROPERTY_NAMES.get(random.nextInt(PROPERTY_NAMES.size())), randomElement(random, depth - 1));
+        }
+        return object;
+    }
+
+    private static JsonElement randomElement(Random random, int depth) {
+        var kind = depth <= 0 ? random.nextInt(4) : random.nextInt(6);
+        return switch (kind) {
+            case 0 -> new JsonPrimitive("v" + random.nextInt(1000) + (random.nextBoolean() ? "ضريبة" : ""));
+            case 1 -> new JsonPrimitive(new BigDecimal(random.nextInt(100_000)).movePointLeft(random.nextInt(5)));
+            case 2 -> new JsonPrimitive(random.nextBoolean());
+            case 3 -> JsonNull.INSTANCE;
+            case 4 -> randomObject(random, depth);
+            default -> {
+                var array = new JsonArray();
+                var elements = random.nextInt(4);
+                for (int element = 0; element < elements; element++) {
+                    array.add(randomElement(random, depth - 1));
+                }
+                yield array;
+            }
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.uber.egypt.document;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Testing strategy
+ * <p>
+ * Small documents with nested objects, arrays and Arabic text are canonicalized into bytes and
+ * compared against the UTF-8 encoding of the canonical format written out by hand.
+ */
+public class JsonUtilsTest {
+    private static final String DOCUMENT = """
+            {"issuer":{"name":"شركة أوبر","address":{"branchID":"0"}},"invoiceLines":[{"itemCode":"A1"},{"itemCode":"B2"}],"note":null}
+            """;
+
+    @Test
+    public void canonicalizeToUtf8_should_return_the_utf8_encoding_of_the_canonical_format() {
+        // Given.
+        var document = new Gson().fromJson(DOCUMENT, JsonObject.class);
+
+        // When.
+        var canonicalized = JsonUtils.canonicalizeToUtf8(document);
+
+        // Then.
+        var expected = "\"ISSUER\"\"NAME\"\"شركة أوبر\"\"ADDRESS\"\"BRANCHID\"\"0\""
+                + "\"INVOICELINES\"\"INVOICELINES\"\"ITEMCODE\"\"A1\"\"INVOICELINES\"\"ITEMCODE\"\"B2\""
+                + "\"NOTE\"";
+        then(canonicalized).isEqualTo(expected.getBytes(StandardCharsets.UTF_8));
+        then(JsonUtils.canonicalize(DOCUMENT)).isEqualTo(expected);
+    }
+
+    @Test
+    public void merge_should_append_the_signature_to_the_parsed_document() {
+        // Given.
+        var document = new Gson().fromJson(DOCUMENT, JsonObject.class);
+
+        // When.
+        var signedDocument = JsonUtils.merge(document, "c2lnbmF0dXJl");
+
+        // Then.
+        then(signedDocument.getAsJsonArray("signatures").get(0).getAsJsonObject().get("value").getAsString())
+                .isEqualTo("c2lnbmF0dXJl");
+        then(signedDocument.get("issuer")).isEqualTo(document.get("issuer"));
+    }
+}
@@ -0,0 +1,270 @@
+package com.uber.egypt.loadtest;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays invoices against a running signer at a fixed request rate and reports throughput and
+ * latency percentiles.
+ * <p>
+ * Requests are scheduled open-loop: request {@code i} is due at {@code start + i / rate}, whether
+ * or not earlier requests completed. When the server falls behind, a request waits for one of
+ * the {@code concurrency} connections, and its latency is measured from when it was due rather
+ * than from when it was sent. This corrects for coordinated omission, which would otherwise hide
+ * exactly the stalls the report is meant to show. Both latencies are reported.
+ * <p>
+ * Throughput counts the requests that completed within the measurement window, whichever phase
+ * they were sent in, so that neither warmup requests completing late nor the requests still in
+ * flight when the window closes skew it.
+ * <p>
+ * Run with {@code ./mvnw -Pload-test test-compile exec:java}, configured with the
+ * {@code load.*} system properties listed in the README.
+ */
+public class SigningLoadGenerator {
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final URI url;
+    private final String authorization;
+    private final int batchSize;
+    private final double rate;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final boolean insecure;
+    private final JsonArray documents;
+
+    SigningLoadGenerator(
+            URI url,
+            String user,
+            String password,
+            Path input,
+            int batchSize,
+            double rate,
+            int concurrency,
+            Duration warmup,
+            Duration duration,
+            boolean insecure
+    ) throws IOException {
+        this.url = url;
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (user + ":" + password).getBytes(StandardCharsets.UTF_8)
+        );
+        this.batchSize = batchSize;
+        this.rate = rate;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.insecure = insecure;
+        this.documents = new Gson()
+                .fromJson(Files.readString(input, StandardCharsets.UTF_8), JsonObject.class)
+                .getAsJsonArray("documents");
+        if (documents.isEmpty()) {
+            throw new IllegalArgumentException(input + " has no documents");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var generator = new SigningLoadGenerator(
+                URI.create(System.getProperty("load.url", "https://localhost:8443/sign")),
+                System.getProperty("load.user", "egypt_signing"),
+                System.getProperty("load.password", ""),
+                Path.of(System.getProperty("load.input", "docu/input.json")),
+                Integer.getInteger("load.batchSize", 1),
+                Double.parseDouble(System.getProperty("load.rate", "10")),
+                Integer.getInteger("load.concurrency", 16),
+                Duration.ofSeconds(Integer.getInteger("load.warmupSeconds", 5)),
+                Duration.ofSeconds(Integer.getInteger("load.durationSeconds", 30)),
+                Boolean.getBoolean("load.insecure")
+        );
+        generator.run().print();
+    }
+
+    Report run() throws GeneralSecurityException, InterruptedException {
+        var bodies = buildRequestBodies();
+        var client = buildClient();
+        var connections = new Semaphore(concurrency);
+
+        var period = 1e9 / rate;
+        var warmupRequests = (int) (warmup.toSeconds() * rate);
+        var totalRequests = warmupRequests + (int) (duration.toSeconds() * rate);
+        var correctedLatencies = new long[totalRequests];
+        var sendLatencies = new long[totalRequests];
+        var completedAt = new long[totalRequests];
+        var succeeded = new boolean[totalRequests];
+        var completed = new CountDownLatch(totalRequests);
+
+        var start = System.nanoTime();
+        var measurementStart = start + (long) (warmupRequests * period);
+        var measurementEnd = start + (long) (totalRequests * period);
+        for (int request = 0; request < totalRequests; request++) {
+            var due = start + (long) (request * period);
+            LockSupport.parkNanos(due - System.nanoTime());
+            connections.acquire();
+
+            var index = request;
+            var sent = System.nanoTime();
+            client
+                    .sendAsync(buildRequest(bodies[request % bodies.length]), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        var received = System.nanoTime();
+                        connections.release();
+                        correctedLatencies[index] = received - due;
+                        sendLatencies[index] = received - sent;
+                        completedAt[index] = received;
+                        succeeded[index] = failure == null && response.statusCode() == 200;
+                        completed.countDown();
+                    });
+        }
+        completed.await();
+
+        // The latch orders the writes of the callbacks before these reads.
+        var completedInWindow = 0;
+        var failures = 0;
+        for (int request = 0; request < totalRequests; request++) {
+            if (succeeded[request] && completedAt[request] >= measurementStart && completedAt[request] < measurementEnd) {
+                completedInWindow++;
+            }
+            if (!succeeded[request] && request >= warmupRequests) {
+                failures++;
+            }
+        }
+        var measured = totalRequests - warmupRequests;
+        return new Report(
+                measured,
+                failures,
+                completedInWindow,
+                completedInWindow * batchSize,
+                measurementEnd - measurementStart,
+                Arrays.copyOfRange(correctedLatencies, warmupRequests, totalRequests),
+                Arrays.copyOfRange(sendLatencies, warmupRequests, totalRequests)
+        );
+    }
+
+    // One body per starting document, so that batches cycle through the whole input file.
+    private String[] buildRequestBodies() {
+        var bodies = new String[documents.size()];
+        for (int first = 0; first < documents.size(); first++) {
+            var batch = new JsonArray(batchSize);
+            for (int document = 0; document < batchSize; document++) {
+                batch.add(documents.get((first + document) % documents.size()));
+            }
+            var envelope = new JsonObject();
+            envelope.add("documents", batch);
+            bodies[first] = Base64.getEncoder().encodeToString(envelope.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return bodies;
+    }
+
+    private HttpRequest buildRequest(String body) {
+        return HttpRequest
+                .newBuilder(url)
+                .header("Authorization", authorization)
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpClient buildClient() throws GeneralSecurityException {
+        var builder = HttpClient
+                .newBuilder()
+                .executor(Executors.newFixedThreadPool(concurrency, runnable -> {
+                    // Daemon threads, so that the JVM exits after the report.
+                    var thread = new Thread(runnable, "load-generator");
+                    thread.setDaemon(true);
+                    return thread;
+                }))
+                .connectTimeout(Duration.ofSeconds(10));
+        if (insecure) {
+            builder.sslContext(trustAllSslContext());
+        }
+        return builder.build();
+    }
+
+    // Only for signers on a test host with a self-signed certificate.
+    private static SSLContext trustAllSslContext() throws GeneralSecurityException {
+        var trustAll = new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+        var sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[]{trustAll}, null);
+        return sslContext;
+    }
+
+    record Report(
+            int requests,
+            int failures,
+            int completedRequests,
+            int completedDocuments,
+            long windowNanos,
+            long[] correctedLatencies,
+            long[] sendLatencies
+    ) {
+
+        void print() {
+            var seconds = windowNanos / 1e9;
+            System.out.printf("requests:   %d (%d failed)%n", requests, failures);
+            System.out.printf(
+                    "throughput: %.1f requests/s, %.1f documents/s%n",
+                    completedRequests / seconds,
+                    completedDocuments / seconds
+            );
+            System.out.println("latency (ms)            p50       p95       p99       max");
+            printPercentiles("corrected (from due)", correctedLatencies);
+            printPercentiles("uncorrected (from sent)", sendLatencies);
+        }
+
+        private static void printPercentiles(String label, long[] latencies) {
+            var sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf(
+                    "%-23s %9.1f %9.1f %9.1f %9.1f%n",
+                    label,
+                    percentile(sorted, 50) / NANOS_PER_MILLI,
+                    percentile(sorted, 95) / NANOS_PER_MILLI,
+                    percentile(sorted, 99) / NANOS_PER_MILLI,
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / NANOS_PER_MILLI
+            );
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            var rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, rank)];
+        }
+    }
+}
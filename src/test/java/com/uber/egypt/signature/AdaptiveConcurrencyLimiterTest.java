@@ -0,0 +1,141 @@
+package com.uber.egypt.signature;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPairGenerator;
+import java.security.Security;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * Latency samples are fed to the limiter without real token calls, and the resulting limit is
+ * compared against the limit it started with. The limits the signing strategy configures are
+ * checked separately.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST = 10_000_000L;
+    private static final long SLOW = 50_000_000L;
+
+    @Test
+    public void limit_should_grow_while_saturated_calls_stay_fast() {
+        // Given.
+        var limiter = new AdaptiveConcurrencyLimiter(2, 1, 8);
+
+        // When.
+        for (int sample = 0; sample < 100; sample++) {
+            saturateAndRelease(limiter, FAST, true);
+        }
+
+        // Then.
+        then(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    public void limit_should_shrink_when_calls_become_slow() {
+        // Given.
+        var limiter = new AdaptiveConcurrencyLimiter(8, 1, 8);
+        saturateAndRelease(limiter, FAST, true);
+
+        // When.
+        for (int sample = 0; sample < 10; sample++) {
+            saturateAndRelease(limiter, SLOW, true);
+        }
+
+        // Then.
+        then(limiter.getLimit()).isLessThan(8);
+    }
+
+    @Test
+    public void limit_should_shrink_once_when_the_calls_in_flight_are_all_slow() {
+        // Given.
+        var limiter = new AdaptiveConcurrencyLimiter(8, 1, 8);
+        saturateAndRelease(limiter, FAST, true);
+
+        // When.
+        saturateAndRelease(limiter, SLOW, true);
+
+        // Then.
+        then(limiter.getLimit()).isEqualTo(7);
+    }
+
+    @Test
+    public void limit_should_shrink_when_calls_fail_but_not_below_the_minimum() {
+        // Given.
+        var limiter = new AdaptiveConcurrencyLimiter(4, 2, 8);
+
+        // When.
+        for (int sample = 0; sample < 100; sample++) {
+            saturateAndRelease(limiter, FAST, false);
+        }
+
+        // Then.
+        then(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void limit_should_not_grow_when_it_is_not_used() {
+        // Given.
+        var limiter = new AdaptiveConcurrencyLimiter(4, 1, 8);
+
+        // When.
+        for (int sample = 0; sample < 100; sample++) {
+            var permit = limiter.acquire();
+            limiter.release(permit, FAST, true);
+        }
+
+        // Then.
+        then(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    public void signing_strategy_should_start_below_the_limit_it_may_grow_to() throws Exception {
+        // Given.
+        var configurationReader = mock(FileConfigurationReader.class);
+        when(configurationReader.getSigningWorkers()).thenReturn(2);
+        when(configurationReader.getMaxTokenConcurrency()).thenReturn(6);
+        when(configurationReader.isAdaptiveConcurrencyEnabled()).thenReturn(true);
+        when(configurationReader.getBulkMinimumShare()).thenReturn(0.2);
+
+        // When.
+        var signingStrategy = new CadesBesSigningStrategy(keySource(), configurationReader);
+
+        // Then.
+        try {
+            then(signingStrategy.getTokenConcurrencyLimit()).isEqualTo(2);
+            then(signingStrategy.getWorkerCount()).isEqualTo(6);
+        } finally {
+            signingStrategy.shutdown();
+        }
+    }
+
+    private static SigningKeySource keySource() throws Exception {
+        var provider = new BouncyCastleProvider();
+        Security.addProvider(provider);
+        var keyPair = KeyPairGenerator.getInstance("RSA", provider).generateKeyPair();
+        var keySource = mock(SigningKeySource.class);
+        when(keySource.getPrivateKey()).thenReturn(keyPair.getPrivate());
+        when(keySource.getCertificate()).thenReturn(SecurityUtils.convertX509CertificateHolder(
+                SecurityUtils.createTrustAnchor(keyPair, "SHA256withRSAEncryption")
+        ));
+        when(keySource.getProvider()).thenReturn(provider);
+        return keySource;
+    }
+
+    // Fills every permit, so that each released call ran while the limit was in full use.
+    private static void saturateAndRelease(AdaptiveConcurrencyLimiter limiter, long latencyNanos, boolean succeeded) {
+        var limit = limiter.getLimit();
+        var permits = new AdaptiveConcurrencyLimiter.Permit[limit];
+        for (int call = 0; call < limit; call++) {
+            permits[call] = limiter.acquire();
+        }
+        for (int call = 0; call < limit; call++) {
+            limiter.release(permits[call], latencyNanos, succeeded);
+        }
+    }
+}
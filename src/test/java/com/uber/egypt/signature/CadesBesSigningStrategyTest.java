@@ -18,6 +18,7 @@ import org.bouncycastle.util.Selector;
 import org.bouncycastle.util.Store;
 import org.bouncycastle.util.StoreException;
 import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -27,11 +28,13 @@ import java.security.*;
 import java.security.cert.CertificateEncodingException;
 import java.security.cert.X509Certificate;
 import java.text.ParseException;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.BDDAssertions.then;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -80,6 +83,11 @@ public class CadesBesSigningStrategyTest {
         }
     }
 
+    @AfterEach
+    public void tearDown() {
+        signingStrategy.shutdown();
+    }
+
     @Test
     public void signature_should_be_a_CMS_SignedData_signature() {
         // When, then.
@@ -273,6 +281,58 @@ public class CadesBesSigningStrategyTest {
         then(actual).isEqualTo(expected);
     }
 
+    @Test
+    public void signerInfo_signedAttrs_MessageDigest_should_be_the_supplied_digest_when_signing_a_digest() throws CMSException {
+        // Given.
+        ASN1ObjectIdentifier messageDigestOID = PKCSObjectIdentifiers.pkcs_9_at_messageDigest;
+        byte[] digest = Hex.decode(input.getBytes());
+        DERSet expected = new DERSet(new DEROctetString(digest));
+
+        // When.
+        CMSSignedData digestSignedData = new CMSSignedData(Base64.getDecoder().decode(signingStrategy.signDigest(digest)));
+        SignerInformation digestSignerInfo = digestSignedData.getSignerInfos().getSigners().iterator().next();
+        ASN1Encodable actual = digestSignerInfo.getSignedAttributes().get(messageDigestOID).getAttrValues();
+
+        // Then.
+        then(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void signing_a_digest_should_reject_digests_that_are_not_32_bytes_long() {
+        // Given.
+        byte[] digest = new byte[31];
+
+        // When, then.
+        assertThrows(InvalidDigestException.class, () -> signingStrategy.signDigest(digest));
+    }
+
+    @Test
+    public void signing_a_digest_should_drop_it_once_its_request_is_abandoned() {
+        // Given.
+        byte[] digest = Hex.decode(input.getBytes());
+        var deadline = SigningDeadline.none();
+        deadline.abandon();
+
+        // When, then.
+        assertThrows(
+                DeadlineExceededException.class,
+                () -> signingStrategy.signDigest(digest, signingStrategy.getIdentity(null), deadline)
+        );
+        then(signingStrategy.getDroppedDocumentCount()).isEqualTo(1);
+        then(signingStrategy.getSavedTokenSeconds()).isPositive();
+    }
+
+    @Test
+    public void signing_a_digest_should_succeed_before_its_deadline() {
+        // Given.
+        byte[] digest = Hex.decode(input.getBytes());
+        var deadline = SigningDeadline.after(Duration.ofMinutes(1));
+
+        // When, then.
+        assertDoesNotThrow(() -> signingStrategy.signDigest(digest, signingStrategy.getIdentity(null), deadline));
+        then(signingStrategy.getDroppedDocumentCount()).isZero();
+    }
+
     @Test
     public void signerInfo_signedAttrs_ESSSigningCertificateV2_should_contains_SHA256_hash_of_the_signer_certificate() throws NoSuchAlgorithmException, CertificateEncodingException {
         // Given.
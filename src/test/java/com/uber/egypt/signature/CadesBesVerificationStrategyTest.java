@@ -0,0 +1,119 @@
+package com.uber.egypt.signature;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * Signatures are created by {@link CadesBesSigningStrategy} with a software key and then checked
+ * against the digest of the signed data, the digest of other data and signatures of another key.
+ */
+public class CadesBesVerificationStrategyTest {
+    private final String canonicalizedDocument = "\"ISSUER\"\"ADDRESS\"\"BRANCHID\"\"1\"";
+    private CadesBesSigningStrategy signingStrategy;
+    private CadesBesVerificationStrategy verificationStrategy;
+
+    @BeforeEach
+    public void setup() {
+        var securityProvider = new BouncyCastleProvider();
+        Security.addProvider(securityProvider);
+        signingStrategy = new CadesBesSigningStrategy(mockKeySource(securityProvider));
+        verificationStrategy = new CadesBesVerificationStrategy();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        signingStrategy.shutdown();
+    }
+
+    @Test
+    public void signature_should_be_valid_for_the_digest_of_the_signed_data() throws NoSuchAlgorithmException {
+        // Given.
+        String signature = signingStrategy.sign(canonicalizedDocument);
+
+        // When.
+        VerificationResult result = verificationStrategy.verify(digest(canonicalizedDocument), signature);
+
+        // Then.
+        then(result.valid()).isTrue();
+    }
+
+    @Test
+    public void signature_should_be_invalid_for_the_digest_of_other_data() throws NoSuchAlgorithmException {
+        // Given.
+        String signature = signingStrategy.sign(canonicalizedDocument);
+
+        // When.
+        VerificationResult result = verificationStrategy.verify(digest(canonicalizedDocument + "\"2\""), signature);
+
+        // Then.
+        then(result.valid()).isFalse();
+    }
+
+    @Test
+    public void signature_should_be_invalid_when_the_signature_value_is_tampered_with() throws NoSuchAlgorithmException {
+        // Given.
+        byte[] signature = Base64.getDecoder().decode(signingStrategy.sign(canonicalizedDocument));
+        signature[signature.length - 1] ^= 1;
+        String tamperedSignature = Base64.getEncoder().encodeToString(signature);
+
+        // When.
+        VerificationResult result = verificationStrategy.verify(digest(canonicalizedDocument), tamperedSignature);
+
+        // Then.
+        then(result.valid()).isFalse();
+    }
+
+    @Test
+    public void signatures_of_different_certificates_should_both_be_valid() throws NoSuchAlgorithmException {
+        // Given.
+        var otherSigningStrategy = new CadesBesSigningStrategy(mockKeySource(new BouncyCastleProvider()));
+        String signature = signingStrategy.sign(canonicalizedDocument);
+        String otherSignature;
+        try {
+            otherSignature = otherSigningStrategy.sign(canonicalizedDocument);
+        } finally {
+            otherSigningStrategy.shutdown();
+        }
+
+        // When.
+        VerificationResult result = verificationStrategy.verify(digest(canonicalizedDocument), signature);
+        VerificationResult otherResult = verificationStrategy.verify(digest(canonicalizedDocument), otherSignature);
+
+        // Then.
+        then(result.valid()).isTrue();
+        then(otherResult.valid()).isTrue();
+    }
+
+    private static byte[] digest(String data) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SigningKeySource mockKeySource(Provider provider) {
+        try {
+            var keyPair = KeyPairGenerator.getInstance("RSA", provider).generateKeyPair();
+            X509Certificate certificate = SecurityUtils.convertX509CertificateHolder(
+                    SecurityUtils.createTrustAnchor(keyPair, "SHA256withRSAEncryption")
+            );
+            var keySource = mock(SigningKeySource.class);
+            when(keySource.getPrivateKey()).thenReturn(keyPair.getPrivate());
+            when(keySource.getCertificate()).thenReturn(certificate);
+            when(keySource.getProvider()).thenReturn(provider);
+            return keySource;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.uber.egypt.signature;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.telemetry.AllocationAccounting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.BDDAssertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * The signing strategy is replaced by one that signs on the common pool, fails for documents
+ * whose internalID is {@code FAILING} and is slow for those whose internalID is {@code SLOW}, so
+ * that every kind of failure, and documents completing out of order, can be placed anywhere in a
+ * batch or stream. The response is then checked document by document: every document that could
+ * be signed is, and every other one is an error entry at its own index with the type of its
+ * failure.
+ */
+public class DocumentSigningServiceTest {
+    private static final String FAILING = "FAILING";
+    private static final String SLOW = "SLOW";
+    private final Gson gson = new Gson();
+    private final FileConfigurationReader configurationReader = mock(FileConfigurationReader.class);
+    private CadesBesSigningStrategy signingStrategy;
+    private AllocationAccounting allocationAccounting;
+    private DocumentSigningService signingService;
+
+    @BeforeEach
+    public void setup() {
+        var identity = mock(SigningIdentity.class);
+        signingStrategy = mock(CadesBesSigningStrategy.class);
+        when(signingStrategy.getIdentity(any())).thenReturn(identity);
+        when(signingStrategy.getWorkers(any())).thenReturn(ForkJoinPool.commonPool());
+        when(signingStrategy.getWorkerCount()).thenReturn(2);
+        when(signingStrategy.sign(any(byte[].class), any(), any())).thenAnswer(invocation -> {
+            var canonicalized = new String(invocation.<byte[]>getArgument(0), StandardCharsets.UTF_8);
+            if (canonicalized.contains(FAILING)) {
+                throw new IllegalStateException("The token was removed");
+            }
+            if (canonicalized.contains(SLOW)) {
+                Thread.sleep(200);
+            }
+            return "signature of " + canonicalized;
+        });
+        when(signingStrategy.signDigest(any(byte[].class), any(), any()))
+                .thenAnswer(invocation -> "signature of " + invocation.<byte[]>getArgument(0).length + " bytes");
+
+        allocationAccounting = mock(AllocationAccounting.class);
+        when(allocationAccounting.measure(anyLong(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+
+        when(configurationReader.getDefaultSigningTimeoutMillis()).thenReturn(null);
+        when(configurationReader.getMaxConcurrentStreams()).thenReturn(2);
+        signingService = new DocumentSigningService(signingStrategy, allocationAccounting, configurationReader);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        signingService.shutdown();
+    }
+
+    @Test
+    public void generateSignedEncodedDocuments_should_sign_the_decoded_envelope() {
+        // Given.
+        var documents = "{\"documents\":[{\"internalID\":\"A\"}]}";
+
+        // When.
+        var response = signingService.generateSignedEncodedDocuments(
+                Base64.getEncoder().encode(documents.getBytes(StandardCharsets.UTF_8)),
+                SigningPriority.BULK,
+                ResponseMode.DOCUMENTS,
+                null,
+                null,
+                null
+        );
+
+        // Then.
+        var signedDocuments = gson.fromJson(new String(response, StandardCharsets.UTF_8), JsonObject.class).getAsJsonArray("documents");
+        then(signedDocuments).hasSize(1);
+        then(signatureOf(signedDocuments.get(0).getAsJsonObject())).isEqualTo("signature of \"INTERNALID\"\"A\"");
+    }
+
+    @Test
+    public void generateSignedDocuments_should_sign_the_other_documents_of_a_batch_with_failing_documents() {
+        // Given.
+        var documents = """
+                {"documents":[{"internalID":"A"},42,{"internalID":"FAILING"},{"internalID":"B"}]}
+                """;
+
+        // When.
+        var signedDocuments = sign(documents);
+
+        // Then.
+        then(signedDocuments).hasSize(4);
+        then(signatureOf(signedDocuments.get(0).getAsJsonObject())).isEqualTo("signature of \"INTERNALID\"\"A\"");
+        then(signatureOf(signedDocuments.get(3).getAsJsonObject())).isEqualTo("signature of \"INTERNALID\"\"B\"");
+        thenError(signedDocuments.get(1).getAsJsonObject(), 1, "INVALID_DOCUMENT", "A document must be a JSON object");
+        thenError(signedDocuments.get(2).getAsJsonObject(), 2, "SIGNATURE_FAILURE", "The token was removed");
+    }
+
+    @Test
+    public void generateSignedDocuments_should_return_every_document_with_its_signature_in_documents_mode() {
+        // Given.
+        var documents = """
+                {"documents":[{"internalID":"A","issuer":{"name":"Uber"},"totalAmount":1.5}]}
+                """;
+
+        // When.
+        var response = sign(documents, ResponseMode.DOCUMENTS);
+
+        // Then.
+        then(response.keySet()).containsExactly("documents");
+        var signedDocument = response.getAsJsonArray("documents").get(0).getAsJsonObject();
+        then(signedDocument.keySet()).containsExactly("internalID", "issuer", "totalAmount", "signatures");
+        then(signedDocument.getAsJsonObject("issuer").get("name").getAsString()).isEqualTo("Uber");
+        then(signedDocument.get("totalAmount").getAsDouble()).isEqualTo(1.5);
+        var signature = signedDocument.getAsJsonArray("signatures").get(0).getAsJsonObject();
+        then(signature.get("signatureType").getAsString()).isEqualTo("I");
+        then(signature.get("value").getAsString())
+                .isEqualTo("signature of \"INTERNALID\"\"A\"\"ISSUER\"\"NAME\"\"Uber\"\"TOTALAMOUNT\"\"1.5\"");
+    }
+
+    @Test
+    public void generateSignedDocuments_should_return_only_the_id_and_signature_of_every_document_in_signatures_mode() {
+        // Given.
+        var documents = """
+                {"documents":[{"internalID":"A","totalAmount":1.5},{"totalAmount":2},{"internalID":"FAILING"}]}
+                """;
+
+        // When.
+        var response = sign(documents, ResponseMode.SIGNATURES);
+
+        // Then.
+        then(response.keySet()).containsExactly("signatures");
+        var entries = response.getAsJsonArray("signatures");
+        then(entries).hasSize(3);
+        var identified = entries.get(0).getAsJsonObject();
+        then(identified.keySet()).containsExactly("internalID", "signature");
+        then(identified.get("internalID").getAsString()).isEqualTo("A");
+        then(identified.get("signature").getAsString()).isEqualTo("signature of \"INTERNALID\"\"A\"\"TOTALAMOUNT\"\"1.5\"");
+        var indexed = entries.get(1).getAsJsonObject();
+        then(indexed.keySet()).containsExactly("index", "signature");
+        then(indexed.get("index").getAsInt()).isEqualTo(1);
+        then(indexed.get("signature").getAsString()).isEqualTo("signature of \"TOTALAMOUNT\"\"2\"");
+        thenError(entries.get(2).getAsJsonObject(), 2, "SIGNATURE_FAILURE", "The token was removed");
+    }
+
+    @Test
+    public void generateSignedDocuments_should_give_requests_without_a_timeout_no_deadline_by_default() {
+        // When.
+        sign("{\"documents\":[{\"internalID\":\"A\"}]}");
+
+        // Then.
+        var deadline = ArgumentCaptor.forClass(SigningDeadline.class);
+        verify(signingStrategy).sign(any(byte[].class), any(), deadline.capture());
+        then(deadline.getValue().getRemaining()).isNull();
+        then(deadline.getValue().isExpired()).isFalse();
+    }
+
+    @Test
+    public void generateSignedDocuments_should_give_requests_without_a_timeout_the_configured_default_deadline() {
+        // Given.
+        when(configurationReader.getDefaultSigningTimeoutMillis()).thenReturn(60_000L);
+        signingService = new DocumentSigningService(signingStrategy, allocationAccounting, configurationReader);
+
+        // When.
+        sign("{\"documents\":[{\"internalID\":\"A\"}]}");
+
+        // Then.
+        var deadline = ArgumentCaptor.forClass(SigningDeadline.class);
+        verify(signingStrategy).sign(any(byte[].class), any(), deadline.capture());
+        then(deadline.getValue().getRemaining()).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void generateDigestSignatures_should_sign_the_other_digests_of_a_batch_with_invalid_digests() {
+        // Given.
+        var digests = """
+                {"digests":["AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=","not Base64!","AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA="]}
+                """;
+
+        // When.
+        var signatures = gson
+                .fromJson(signingService.generateDigestSignatures(digests, SigningPriority.BULK, null, null), JsonObject.class)
+                .getAsJsonArray("signatures");
+
+        // Then.
+        then(signatures).hasSize(3);
+        then(signatures.get(0).getAsString()).isEqualTo("signature of 32 bytes");
+        then(signatures.get(2).getAsString()).isEqualTo("signature of 32 bytes");
+        then(signatures.get(1).getAsJsonObject().get("index").getAsInt()).isEqualTo(1);
+        then(signatures.get(1).getAsJsonObject().getAsJsonObject("error").get("type").getAsString()).isEqualTo("INVALID_DIGEST");
+    }
+
+    @Test
+    public void streamSignedDocuments_should_emit_every_document_in_input_order_past_failing_documents() {
+        // Given.
+        var documents = """
+                {"documents":[{"internalID":"SLOW"},{"internalID":"A"},{"internalID":"FAILING"},7,{"internalID":"B"}]}
+                """;
+
+        // When.
+        var lines = stream(documents);
+
+        // Then.
+        then(lines).hasSize(5).allMatch(line -> line.endsWith("\n"));
+        then(signatureOf(parse(lines.get(0)))).isEqualTo("signature of \"INTERNALID\"\"SLOW\"");
+        then(signatureOf(parse(lines.get(1)))).isEqualTo("signature of \"INTERNALID\"\"A\"");
+        thenError(parse(lines.get(2)), 2, "SIGNATURE_FAILURE", "The token was removed");
+        thenError(parse(lines.get(3)), 3, "INVALID_DOCUMENT", "A document must be a JSON object");
+        then(signatureOf(parse(lines.get(4)))).isEqualTo("signature of \"INTERNALID\"\"B\"");
+    }
+
+    @Test
+    public void streamSignedDocuments_should_end_with_an_error_line_when_the_envelope_breaks_off() {
+        // Given.
+        var documents = """
+                {"documents":[{"internalID":"A"},{"internalID":"SLOW"},{"internalID":
+                """;
+
+        // When.
+        var lines = stream(documents);
+
+        // Then.
+        then(lines).hasSize(3);
+        then(signatureOf(parse(lines.get(0)))).isEqualTo("signature of \"INTERNALID\"\"A\"");
+        then(signatureOf(parse(lines.get(1)))).isEqualTo("signature of \"INTERNALID\"\"SLOW\"");
+        var error = parse(lines.get(2));
+        then(error.has("index")).isFalse();
+        then(error.getAsJsonObject("error").get("type").getAsString()).isEqualTo("INVALID_DOCUMENT");
+    }
+
+    @Test
+    public void streamSignedDocuments_should_reject_streams_beyond_the_maximum_until_one_ends() {
+        // Given.
+        var documents = "{\"documents\":[{\"internalID\":\"A\"}]}";
+        var first = open(documents);
+        var second = open(documents);
+
+        // When.
+        var rejected = catchThrowable(() -> open(documents));
+        first.collectList().block(Duration.ofSeconds(10));
+
+        // Then.
+        then(rejected).isInstanceOf(TooManyStreamsException.class);
+        then(stream(documents)).hasSize(1);
+        then(second.collectList().block(Duration.ofSeconds(10))).hasSize(1);
+    }
+
+    private List<String> stream(String documents) {
+        return open(documents).collectList().block(Duration.ofSeconds(10));
+    }
+
+    private Flux<String> open(String documents) {
+        var body = Base64.getEncoder().encode(documents.getBytes(StandardCharsets.UTF_8));
+        return signingService
+                .streamSignedDocuments(new ByteArrayInputStream(body), SigningPriority.BULK, ResponseMode.DOCUMENTS, null, null, null);
+    }
+
+    private JsonObject parse(String line) {
+        return gson.fromJson(line, JsonObject.class);
+    }
+
+    private JsonArray sign(String documents) {
+        return sign(documents, ResponseMode.DOCUMENTS).getAsJsonArray("documents");
+    }
+
+    private JsonObject sign(String documents, ResponseMode mode) {
+        var response = signingService.generateSignedDocuments(
+                documents.getBytes(StandardCharsets.UTF_8),
+                SigningPriority.BULK,
+                mode,
+                null,
+                null,
+                null
+        );
+        return gson.fromJson(new String(response, StandardCharsets.UTF_8), JsonObject.class);
+    }
+
+    private static String signatureOf(JsonObject signedDocument) {
+        return signedDocument.getAsJsonArray("signatures").get(0).getAsJsonObject().get("value").getAsString();
+    }
+
+    private static void thenError(JsonObject entry, int index, String type, String message) {
+        then(entry.get("index").getAsInt()).isEqualTo(index);
+        then(entry.getAsJsonObject("error").get("type").getAsString()).isEqualTo(type);
+        then(entry.getAsJsonObject("error").get("message").getAsString()).isEqualTo(message);
+    }
+}
@@ -0,0 +1,168 @@
+package com.uber.egypt.signature;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.document.EtaDocumentCanonicalizer;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * Copies of the sample invoice are signed with the key of the PKCS#12 file of
+ * {@code src/test/resources/certs}, whose certificate authority is the trust anchor, or with a
+ * self-signed key, and the verification of each document is read from the response: its index,
+ * whether it is valid and trusted, and why not.
+ */
+public class DocumentVerificationServiceTest {
+    private final Gson gson = new Gson();
+    private X509Certificate certificateAuthority;
+    private CadesBesSigningStrategy anchoredSigningStrategy;
+    private CadesBesSigningStrategy selfSignedSigningStrategy;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        var configurationReader = mock(FileConfigurationReader.class);
+        when(configurationReader.getKeyStoreFilePath())
+                .thenReturn(Path.of(getClass().getResource("/certs/signer-key-store.p12").toURI()).toString());
+        when(configurationReader.getKeyStorePassword()).thenReturn("42131536");
+        when(configurationReader.getCertificateIssuerName()).thenReturn("Egypt Trust");
+        anchoredSigningStrategy = new CadesBesSigningStrategy(new SoftwareKeyStoreSecurityFactory(configurationReader, "PKCS12"));
+        selfSignedSigningStrategy = new CadesBesSigningStrategy(selfSignedKeySource());
+        try (InputStream certificate = getClass().getResourceAsStream("/certs/ca-cert.pem")) {
+            certificateAuthority = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(certificate);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        anchoredSigningStrategy.shutdown();
+        selfSignedSigningStrategy.shutdown();
+    }
+
+    @Test
+    public void verifySignedDocuments_should_trust_signatures_chaining_to_a_trust_anchor() throws Exception {
+        // Given.
+        var service = new DocumentVerificationService(new CadesBesVerificationStrategy(List.of(certificateAuthority)));
+        var documents = signedDocuments(anchoredSigningStrategy);
+
+        // When.
+        var results = verify(service, documents);
+
+        // Then.
+        then(results).hasSize(documents.size());
+        for (int index = 0; index < results.size(); index++) {
+            var result = results.get(index).getAsJsonObject();
+            then(result.get("index").getAsInt()).isEqualTo(index);
+            then(result.get("valid").getAsBoolean()).isTrue();
+            then(result.get("trusted").getAsBoolean()).isTrue();
+            then(result.has("failureReason")).isFalse();
+        }
+    }
+
+    @Test
+    public void verifySignedDocuments_should_reject_self_signed_signatures_with_trust_anchors() throws Exception {
+        // Given.
+        var service = new DocumentVerificationService(new CadesBesVerificationStrategy(List.of(certificateAuthority)));
+        var documents = signedDocuments(selfSignedSigningStrategy);
+
+        // When.
+        var result = verify(service, documents).get(0).getAsJsonObject();
+
+        // Then.
+        then(result.get("valid").getAsBoolean()).isFalse();
+        then(result.get("trusted").getAsBoolean()).isFalse();
+        then(result.get("failureReason").getAsString()).startsWith("The signer certificate does not chain to a trust anchor");
+    }
+
+    @Test
+    public void verifySignedDocuments_should_report_signatures_as_not_trusted_without_trust_anchors() throws Exception {
+        // Given.
+        var service = new DocumentVerificationService(new CadesBesVerificationStrategy());
+        var documents = signedDocuments(selfSignedSigningStrategy);
+
+        // When.
+        var result = verify(service, documents).get(0).getAsJsonObject();
+
+        // Then.
+        then(result.get("valid").getAsBoolean()).isTrue();
+        then(result.get("trusted").getAsBoolean()).isFalse();
+    }
+
+    @Test
+    public void verifySignedDocuments_should_reject_only_the_documents_changed_after_signing() throws Exception {
+        // Given.
+        var service = new DocumentVerificationService(new CadesBesVerificationStrategy(List.of(certificateAuthority)));
+        var documents = signedDocuments(anchoredSigningStrategy);
+        documents.get(1).getAsJsonObject().addProperty("internalID", "changed after signing");
+
+        // When.
+        var results = verify(service, documents);
+
+        // Then.
+        then(results.get(0).getAsJsonObject().get("valid").getAsBoolean()).isTrue();
+        then(results.get(2).getAsJsonObject().get("valid").getAsBoolean()).isTrue();
+        var changed = results.get(1).getAsJsonObject();
+        then(changed.get("index").getAsInt()).isEqualTo(1);
+        then(changed.get("internalID").getAsString()).isEqualTo("changed after signing");
+        then(changed.get("valid").getAsBoolean()).isFalse();
+        then(changed.get("failureReason").getAsString()).isEqualTo("The messageDigest does not match the canonical form of the document");
+    }
+
+    private JsonArray verify(DocumentVerificationService service, JsonArray documents) {
+        var request = new JsonObject();
+        request.add("documents", documents);
+        return gson.fromJson(service.verifySignedDocuments(request.toString()), JsonObject.class).getAsJsonArray("documents");
+    }
+
+    private JsonArray signedDocuments(CadesBesSigningStrategy signingStrategy) throws Exception {
+        var invoice = gson
+                .fromJson(Files.readString(Path.of("docu/input.json")), JsonObject.class)
+                .getAsJsonArray("documents")
+                .get(0);
+        var documents = new JsonArray();
+        for (int index = 0; index < 3; index++) {
+            var document = invoice.deepCopy().getAsJsonObject();
+            document.addProperty("internalID", "invoice-" + index);
+            var signature = new JsonObject();
+            signature.addProperty("signatureType", "I");
+            signature.addProperty("value", signingStrategy.sign(EtaDocumentCanonicalizer.canonicalizeToUtf8(document)));
+            var signatures = new JsonArray();
+            signatures.add(signature);
+            document.add("signatures", signatures);
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    private static SigningKeySource selfSignedKeySource() throws Exception {
+        var provider = new BouncyCastleProvider();
+        Security.addProvider(provider);
+        var keyPair = KeyPairGenerator.getInstance("RSA", provider).generateKeyPair();
+        var certificate = SecurityUtils.convertX509CertificateHolder(
+                SecurityUtils.createTrustAnchor(keyPair, "SHA256withRSAEncryption")
+        );
+        var keySource = mock(SigningKeySource.class);
+        when(keySource.getPrivateKey()).thenReturn(keyPair.getPrivate());
+        when(keySource.getCertificate()).thenReturn(certificate);
+        when(keySource.getProvider()).thenReturn(provider);
+        return keySource;
+    }
+}
@@ -0,0 +1,114 @@
+package com.uber.egypt.signature;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Testing strategy
+ * <p>
+ * A single worker is kept busy while tasks are queued on both lanes, then released, so that the
+ * order in which it takes the queued tasks can be observed.
+ */
+public class PrioritySigningSchedulerTest {
+    private PrioritySigningScheduler scheduler;
+    private final List<String> executionOrder = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void setup() throws InterruptedException {
+        scheduler = new PrioritySigningScheduler(1, 0.2);
+        var busy = new CountDownLatch(1);
+        scheduler.getExecutor(SigningPriority.BULK).execute(() -> {
+            busy.countDown();
+            awaitQuietly(release);
+        });
+        busy.await(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void interactive_tasks_should_run_before_bulk_tasks_queued_earlier() throws InterruptedException {
+        // Given.
+        var done = queue(SigningPriority.BULK, 1);
+        var interactiveDone = queue(SigningPriority.INTERACTIVE, 2);
+
+        // When.
+        release.countDown();
+
+        // Then.
+        then(done.await(5, TimeUnit.SECONDS) && interactiveDone.await(5, TimeUnit.SECONDS)).isTrue();
+        then(executionOrder).containsExactly("INTERACTIVE", "INTERACTIVE", "BULK");
+    }
+
+    @Test
+    public void bulk_tasks_should_keep_their_minimum_share_while_interactive_tasks_are_waiting() throws InterruptedException {
+        // Given.
+        var bulkDone = queue(SigningPriority.BULK, 2);
+        var interactiveDone = queue(SigningPriority.INTERACTIVE, 10);
+
+        // When.
+        release.countDown();
+
+        // Then.
+        then(bulkDone.await(5, TimeUnit.SECONDS) && interactiveDone.await(5, TimeUnit.SECONDS)).isTrue();
+        then(executionOrder.subList(0, 10)).containsExactly(
+                "INTERACTIVE", "INTERACTIVE", "INTERACTIVE", "INTERACTIVE", "BULK",
+                "INTERACTIVE", "INTERACTIVE", "INTERACTIVE", "INTERACTIVE", "BULK"
+        );
+    }
+
+    @Test
+    public void workers_above_the_active_limit_should_leave_tasks_queued() throws InterruptedException {
+        // Given.
+        scheduler.shutdown();
+        scheduler = new PrioritySigningScheduler(2, 0.2);
+        scheduler.setActiveWorkerLimit(1);
+        var busy = new CountDownLatch(1);
+        scheduler.getExecutor(SigningPriority.BULK).execute(() -> {
+            busy.countDown();
+            awaitQuietly(release);
+        });
+        busy.await(5, TimeUnit.SECONDS);
+        var done = queue(SigningPriority.INTERACTIVE, 1);
+
+        // When.
+        var ranAboveTheLimit = done.await(200, TimeUnit.MILLISECONDS);
+        scheduler.setActiveWorkerLimit(2);
+
+        // Then.
+        then(ranAboveTheLimit).isFalse();
+        then(done.await(5, TimeUnit.SECONDS)).isTrue();
+        then(scheduler.getQueueDepth(SigningPriority.INTERACTIVE)).isZero();
+    }
+
+    private CountDownLatch queue(SigningPriority priority, int tasks) {
+        var done = new CountDownLatch(tasks);
+        for (int task = 0; task < tasks; task++) {
+            scheduler.getExecutor(priority).execute(() -> {
+                executionOrder.add(priority.name());
+                done.countDown();
+            });
+        }
+        return done;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
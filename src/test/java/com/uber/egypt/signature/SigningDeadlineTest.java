@@ -0,0 +1,54 @@
+package com.uber.egypt.signature;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Testing strategy
+ * <p>
+ * Deadlines are abandoned or left to pass, and every other deadline is checked to still be
+ * running, since deadlines of different requests must never expire each other.
+ */
+public class SigningDeadlineTest {
+
+    @Test
+    public void none_should_return_a_deadline_per_request() {
+        // Given.
+        var abandoned = SigningDeadline.none();
+        var other = SigningDeadline.none();
+
+        // When.
+        abandoned.abandon();
+
+        // Then.
+        then(abandoned.isExpired()).isTrue();
+        then(other.isExpired()).isFalse();
+        then(other.getRemaining()).isNull();
+    }
+
+    @Test
+    public void never_should_not_be_abandoned() {
+        // When.
+        SigningDeadline.never().abandon();
+
+        // Then.
+        then(SigningDeadline.never().isExpired()).isFalse();
+        then(SigningDeadline.never().getRemaining()).isNull();
+    }
+
+    @Test
+    public void after_should_pass_once_the_timeout_elapsed() throws InterruptedException {
+        // Given.
+        var deadline = SigningDeadline.after(Duration.ofMillis(20));
+
+        // When.
+        Thread.sleep(50);
+
+        // Then.
+        then(deadline.isExpired()).isTrue();
+        then(deadline.getRemaining()).isZero();
+    }
+}
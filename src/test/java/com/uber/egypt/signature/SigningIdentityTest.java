@@ -0,0 +1,103 @@
+package com.uber.egypt.signature;
+
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.BDDAssertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * A key source with a default key and one more identity is given to the signing strategy, and the
+ * certificate embedded in each signature tells which identity signed.
+ */
+public class SigningIdentityTest {
+    private final byte[] canonicalizedDocument = "\"ISSUER\"\"ADDRESS\"\"BRANCHID\"\"1\"".getBytes(StandardCharsets.UTF_8);
+    private X509Certificate defaultCertificate;
+    private X509Certificate otherCertificate;
+    private CadesBesSigningStrategy signingStrategy;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        var provider = new BouncyCastleProvider();
+        var defaultKeyPair = KeyPairGenerator.getInstance("RSA", provider).generateKeyPair();
+        var otherKeyPair = KeyPairGenerator.getInstance("RSA", provider).generateKeyPair();
+        defaultCertificate = createCertificate(defaultKeyPair);
+        otherCertificate = createCertificate(otherKeyPair);
+
+        var keySource = mock(SigningKeySource.class);
+        when(keySource.getPrivateKey()).thenReturn(defaultKeyPair.getPrivate());
+        when(keySource.getCertificate()).thenReturn(defaultCertificate);
+        when(keySource.getProvider()).thenReturn(provider);
+        when(keySource.getIdentities()).thenReturn(Map.of(
+                "other-entity",
+                new KeyStore.PrivateKeyEntry(otherKeyPair.getPrivate(), new Certificate[]{otherCertificate})
+        ));
+        signingStrategy = new CadesBesSigningStrategy(keySource);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        signingStrategy.shutdown();
+    }
+
+    @Test
+    public void signature_should_embed_the_certificate_of_the_selected_identity() throws Exception {
+        // Given.
+        var identity = signingStrategy.getIdentity("other-entity");
+
+        // When.
+        var signature = signingStrategy.sign(canonicalizedDocument, identity);
+
+        // Then.
+        then(embeddedCertificate(signature)).isEqualTo(new X509CertificateHolder(otherCertificate.getEncoded()));
+    }
+
+    @Test
+    public void signature_should_embed_the_default_certificate_without_a_selected_identity() throws Exception {
+        // Given.
+        var identity = signingStrategy.getIdentity(null);
+
+        // When.
+        var signature = signingStrategy.sign(canonicalizedDocument, identity);
+
+        // Then.
+        then(embeddedCertificate(signature)).isEqualTo(new X509CertificateHolder(defaultCertificate.getEncoded()));
+    }
+
+    @Test
+    public void getIdentity_should_reject_an_unknown_identity() {
+        // When.
+        var failure = catchThrowable(() -> signingStrategy.getIdentity("unknown-entity"));
+
+        // Then.
+        then(failure).isInstanceOf(UnknownSigningIdentityException.class);
+    }
+
+    private static X509CertificateHolder embeddedCertificate(String signature) throws Exception {
+        var signedData = new CMSSignedData(Base64.getDecoder().decode(signature));
+        return signedData.getCertificates().getMatches(null).iterator().next();
+    }
+
+    private static X509Certificate createCertificate(KeyPair keyPair) throws Exception {
+        return SecurityUtils.convertX509CertificateHolder(
+                SecurityUtils.createTrustAnchor(keyPair, "SHA256withRSAEncryption")
+        );
+    }
+}
@@ -0,0 +1,92 @@
+package com.uber.egypt.signature;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.CMSSignedData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.Signature;
+import java.util.Base64;
+
+import static org.assertj.core.api.BDDAssertions.catchThrowable;
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * The PKCS#12 file of {@code src/test/resources/certs}, whose signer certificate was issued by
+ * "Egypt Trust Sealing CA", is loaded as it is configured in the pre-production environments,
+ * and a signature made with the loaded key is checked against the certificate of the file.
+ */
+public class SoftwareKeyStoreSecurityFactoryTest {
+    private static final String KEY_STORE_PASSWORD = "42131536";
+    private final byte[] canonicalizedDocument = "\"ISSUER\"\"ADDRESS\"\"BRANCHID\"\"1\"".getBytes(StandardCharsets.UTF_8);
+    private FileConfigurationReader configurationReader;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        var keyStoreFile = Path.of(getClass().getResource("/certs/signer-key-store.p12").toURI());
+        configurationReader = mock(FileConfigurationReader.class);
+        when(configurationReader.getKeyStoreFilePath()).thenReturn(keyStoreFile.toString());
+        when(configurationReader.getKeyStorePassword()).thenReturn(KEY_STORE_PASSWORD);
+        when(configurationReader.getCertificateIssuerName()).thenReturn("Egypt Trust");
+        when(configurationReader.getSigningWorkers()).thenReturn(1);
+        when(configurationReader.getBulkMinimumShare()).thenReturn(0.2);
+        when(configurationReader.isAdaptiveConcurrencyEnabled()).thenReturn(true);
+        when(configurationReader.getMaxTokenConcurrency()).thenReturn(2);
+    }
+
+    @Test
+    public void factory_should_load_the_key_issued_by_the_configured_issuer() {
+        // When.
+        var keySource = new SoftwareKeyStoreSecurityFactory(configurationReader, "PKCS12");
+
+        // Then.
+        then(keySource.isHardwareBacked()).isFalse();
+        then(keySource.getCertificate().getSubjectX500Principal().getName()).isEqualTo("CN=Test Signer");
+        then(keySource.getPrivateKey().getAlgorithm()).isEqualTo("RSA");
+        then(keySource.getIdentities()).containsOnlyKeys("signer-cert-alias");
+    }
+
+    @Test
+    public void signature_should_be_made_with_the_key_of_the_file() throws Exception {
+        // Given.
+        var keySource = new SoftwareKeyStoreSecurityFactory(configurationReader, "PKCS12");
+        var signingStrategy = new CadesBesSigningStrategy(keySource, configurationReader);
+
+        // When.
+        String signature;
+        try {
+            signature = signingStrategy.sign(canonicalizedDocument);
+        } finally {
+            signingStrategy.shutdown();
+        }
+
+        // Then.
+        var signedData = new CMSSignedData(Base64.getDecoder().decode(signature));
+        var signerInfo = signedData.getSignerInfos().getSigners().iterator().next();
+        var verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(keySource.getCertificate());
+        verifier.update(signerInfo.getEncodedSignedAttributes());
+        then(verifier.verify(signerInfo.getSignature())).isTrue();
+        then(signedData.getCertificates().getMatches(null))
+                .containsExactly(new X509CertificateHolder(keySource.getCertificate().getEncoded()));
+    }
+
+    @Test
+    public void factory_should_fail_with_a_wrong_password() {
+        // Given.
+        when(configurationReader.getKeyStorePassword()).thenReturn("wrong-password");
+
+        // When.
+        var failure = catchThrowable(() -> new SoftwareKeyStoreSecurityFactory(configurationReader, "PKCS12"));
+
+        // Then.
+        then(failure).isInstanceOf(RuntimeException.class);
+    }
+}
@@ -0,0 +1,316 @@
+package com.uber.egypt.socket;
+
+import com.uber.egypt.configuration.FileConfigurationReader;
+import com.uber.egypt.document.InvalidDocumentFormatException;
+import com.uber.egypt.signature.DeadlineExceededException;
+import com.uber.egypt.signature.DocumentSigningService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.BDDAssertions.then;
+import static org.assertj.core.api.BDDAssertions.thenThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testing strategy
+ * <p>
+ * A listener is started on a Unix domain socket in a temporary directory, or on a free loopback
+ * port, and signs with a service that answers a document with its own JSON, so that every
+ * response can be matched with its request. The client writes raw frames, split anywhere or
+ * pipelined, and reads the raw responses.
+ */
+public class LocalSigningListenerTest {
+    private static final String SECRET = "local secret";
+    private final DocumentSigningService documentSigningService = mock(DocumentSigningService.class);
+    private final FileConfigurationReader configurationReader = mock(FileConfigurationReader.class);
+    private LocalSigningListener listener;
+
+    @TempDir
+    private Path directory;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    @Test
+    public void start_should_only_give_the_user_of_the_signer_access_to_the_socket() throws IOException {
+        // When.
+        var socketPath = startOnUnixDomainSocket();
+
+        // Then.
+        then(Files.getPosixFilePermissions(socketPath)).isEqualTo(PosixFilePermissions.fromString("rw-------"));
+        try (var files = Files.list(directory)) {
+            then(files).containsExactly(socketPath);
+        }
+    }
+
+    @Test
+    public void connection_should_answer_pipelined_frames_in_request_order() throws IOException {
+        // Given.
+        var slowSignature = new CompletableFuture<String>();
+        when(documentSigningService.signDocument(any(), any(), any()))
+                .thenReturn(slowSignature)
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(json(invocation.getArgument(0))));
+        when(documentSigningService.signDigest(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("digest signature"));
+        var socketPath = startOnUnixDomainSocket();
+
+        try (var client = connect(socketPath)) {
+            // When.
+            write(
+                    client,
+                    frame(LocalSigningFrames.DOCUMENT, "{\"internalID\":\"A\"}"),
+                    frame(LocalSigningFrames.DOCUMENT, "{\"internalID\":\"B\"}"),
+                    frame(LocalSigningFrames.DIGEST, "x".repeat(32))
+            );
+            slowSignature.complete("slow signature");
+
+            // Then.
+            thenResponse(client, LocalSigningFrames.OK, "slow signature");
+            thenResponse(client, LocalSigningFrames.OK, "{\"internalID\":\"B\"}");
+            thenResponse(client, LocalSigningFrames.OK, "digest signature");
+        }
+    }
+
+    @Test
+    public void connection_should_decode_frames_that_arrive_in_pieces_and_outgrow_the_buffer() throws Exception {
+        // Given.
+        signDocumentsWithTheirJson();
+        var document = "{\"internalID\":\"" + "A".repeat(200 * 1024) + "\"}";
+        var frame = frame(LocalSigningFrames.DOCUMENT, document);
+        var socketPath = startOnUnixDomainSocket();
+
+        try (var client = connect(socketPath)) {
+            // When.
+            for (var split : new int[]{1, 4, 6, 1000, 70 * 1024}) {
+                write(client, frame.slice(frame.position(), split - frame.position()));
+                frame.position(split);
+                Thread.sleep(20);
+            }
+            write(client, frame);
+
+            // Then.
+            thenResponse(client, LocalSigningFrames.OK, document);
+        }
+    }
+
+    @Test
+    public void connection_should_report_each_failure_with_its_status() throws IOException {
+        // Given.
+        when(documentSigningService.signDocument(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new InvalidDocumentFormatException("Not a document")))
+                .thenReturn(CompletableFuture.failedFuture(new DeadlineExceededException()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("The token was removed")));
+        var socketPath = startOnUnixDomainSocket();
+
+        try (var client = connect(socketPath)) {
+            // When.
+            write(
+                    client,
+                    frame(LocalSigningFrames.DOCUMENT, "1"),
+                    frame(LocalSigningFrames.DOCUMENT, "2"),
+                    frame(LocalSigningFrames.DOCUMENT, "3")
+            );
+
+            // Then.
+            thenResponse(client, LocalSigningFrames.INVALID_DOCUMENT, "Not a document");
+            thenResponse(client, LocalSigningFrames.DEADLINE_EXCEEDED, new DeadlineExceededException().getMessage());
+            thenResponse(client, LocalSigningFrames.SIGNATURE_FAILURE, "The token was removed");
+        }
+    }
+
+    @Test
+    public void connection_should_be_closed_on_an_oversized_frame() throws IOException {
+        // Given.
+        var socketPath = startOnUnixDomainSocket();
+
+        try (var client = connect(socketPath)) {
+            // When.
+            write(client, ByteBuffer
+                    .allocate(LocalSigningFrames.REQUEST_HEADER_LENGTH)
+                    .put(LocalSigningFrames.DOCUMENT)
+                    .put(LocalSigningFrames.BULK)
+                    .putInt(LocalSigningFrames.MAX_PAYLOAD_LENGTH + 1)
+                    .flip());
+
+            // Then.
+            then(client.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+            verify(documentSigningService, never()).signDocument(any(), any(), any());
+        }
+    }
+
+    @Test
+    public void tcp_connection_should_sign_after_authenticating_with_the_secret() throws IOException {
+        // Given.
+        signDocumentsWithTheirJson();
+        var port = startOnTcpPort(SECRET);
+
+        try (var client = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            // When.
+            write(client, frame(LocalSigningFrames.AUTHENTICATE, SECRET), frame(LocalSigningFrames.DOCUMENT, "{}"));
+
+            // Then.
+            thenResponse(client, LocalSigningFrames.OK, "");
+            thenResponse(client, LocalSigningFrames.OK, "{}");
+        }
+    }
+
+    @Test
+    public void tcp_connection_should_be_rejected_with_a_wrong_secret() throws IOException {
+        // Given.
+        signDocumentsWithTheirJson();
+        var port = startOnTcpPort(SECRET);
+
+        try (var client = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            // When.
+            write(client, frame(LocalSigningFrames.AUTHENTICATE, "guessed"), frame(LocalSigningFrames.DOCUMENT, "{}"));
+
+            // Then.
+            thenResponse(client, LocalSigningFrames.UNAUTHORIZED, "Invalid secret");
+            then(client.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+            verify(documentSigningService, never()).signDocument(any(), any(), any());
+        }
+    }
+
+    @Test
+    public void tcp_connection_should_be_closed_when_it_signs_before_authenticating() throws IOException {
+        // Given.
+        var port = startOnTcpPort(SECRET);
+
+        try (var client = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            // When.
+            write(client, frame(LocalSigningFrames.DOCUMENT, "{}"));
+
+            // Then.
+            then(client.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+            verify(documentSigningService, never()).signDocument(any(), any(), any());
+        }
+    }
+
+    @Test
+    public void tcp_connection_should_be_closed_on_a_large_frame_header_before_authenticating() throws IOException {
+        // Given.
+        var port = startOnTcpPort(SECRET);
+
+        for (var type : new byte[]{LocalSigningFrames.DOCUMENT, LocalSigningFrames.AUTHENTICATE}) {
+            try (var client = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+                // When.
+                write(client, ByteBuffer
+                        .allocate(LocalSigningFrames.REQUEST_HEADER_LENGTH)
+                        .put(type)
+                        .put(LocalSigningFrames.BULK)
+                        .putInt(LocalSigningFrames.MAX_PAYLOAD_LENGTH)
+                        .flip());
+
+                // Then.
+                then(client.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+            }
+        }
+    }
+
+    @Test
+    public void start_should_not_open_a_tcp_port_without_a_secret() throws IOException {
+        // Given.
+        when(configurationReader.getLocalSocketPort()).thenReturn(freePort());
+        listener = new LocalSigningListener(configurationReader, documentSigningService);
+
+        // When, then.
+        thenThrownBy(listener::start).isInstanceOf(IllegalStateException.class);
+    }
+
+    private Path startOnUnixDomainSocket() throws IOException {
+        var socketPath = directory.resolve("signer.sock");
+        when(configurationReader.getLocalSocketPath()).thenReturn(socketPath.toString());
+        when(configurationReader.getLocalSocketPort()).thenReturn(null);
+        listener = new LocalSigningListener(configurationReader, documentSigningService);
+        listener.start();
+        return socketPath;
+    }
+
+    private int startOnTcpPort(String secret) throws IOException {
+        var port = freePort();
+        when(configurationReader.getLocalSocketPort()).thenReturn(port);
+        when(configurationReader.getLocalSocketSecret()).thenReturn(secret);
+        listener = new LocalSigningListener(configurationReader, documentSigningService);
+        listener.start();
+        return port;
+    }
+
+    private void signDocumentsWithTheirJson() {
+        when(documentSigningService.signDocument(any(), any(), any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(json(invocation.getArgument(0))));
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static SocketChannel connect(Path socketPath) throws IOException {
+        var client = SocketChannel.open(StandardProtocolFamily.UNIX);
+        client.connect(UnixDomainSocketAddress.of(socketPath));
+        return client;
+    }
+
+    private static String json(byte[] document) {
+        return new String(document, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer frame(byte type, String payload) {
+        var bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer
+                .allocate(LocalSigningFrames.REQUEST_HEADER_LENGTH + bytes.length)
+                .put(type)
+                .put(LocalSigningFrames.BULK)
+                .putInt(bytes.length)
+                .put(bytes)
+                .flip();
+    }
+
+    private static void write(SocketChannel client, ByteBuffer... frames) throws IOException {
+        for (var frame : frames) {
+            while (frame.hasRemaining()) {
+                client.write(frame);
+            }
+        }
+    }
+
+    private static void thenResponse(SocketChannel client, byte status, String payload) throws IOException {
+        var header = readFully(client, 5);
+        then(header.get()).isEqualTo(status);
+        then(json(readFully(client, header.getInt()).array())).isEqualTo(payload);
+    }
+
+    private static ByteBuffer readFully(SocketChannel client, int length) throws IOException {
+        var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) {
+                throw new IOException("The connection was closed");
+            }
+        }
+        return buffer.flip();
+    }
+}
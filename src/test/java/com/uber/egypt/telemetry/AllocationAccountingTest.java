@@ -0,0 +1,83 @@
+package com.uber.egypt.telemetry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.BDDAssertions.then;
+
+/**
+ * Testing strategy
+ * <p>
+ * Stages allocate arrays of a known size, on the calling thread and on another thread, and the
+ * accounted bytes must cover them, in their own stage only. Per document figures are checked in
+ * the published metrics, including the cap on the number of clients.
+ */
+public class AllocationAccountingTest {
+    private static final int ARRAY_SIZE = 1 << 20;
+
+    @Test
+    public void measure_should_account_allocations_of_attached_batches_to_their_stage() {
+        // Given.
+        var accounting = new AllocationAccounting(true);
+        var allocations = accounting.start("billing");
+        accounting.attach(1, allocations);
+
+        // When.
+        allocations.measure(AllocationStage.DECODE, () -> new byte[ARRAY_SIZE]);
+        CompletableFuture.supplyAsync(() -> accounting.measure(1, AllocationStage.SIGN, () -> new byte[2 * ARRAY_SIZE])).join();
+        accounting.measure(2, AllocationStage.PARSE, () -> new byte[ARRAY_SIZE]);
+        accounting.finish(1, 4);
+
+        // Then.
+        then(allocations.getBytes(AllocationStage.DECODE)).isBetween((long) ARRAY_SIZE, ARRAY_SIZE + 64_000L);
+        then(allocations.getBytes(AllocationStage.SIGN)).isBetween(2L * ARRAY_SIZE, 2L * ARRAY_SIZE + 64_000L);
+        then(allocations.getBytes(AllocationStage.PARSE)).isZero();
+        then(allocations.getBytesPerDocument(AllocationStage.SIGN)).isEqualTo(allocations.getBytes(AllocationStage.SIGN) / 4);
+        then(allocations.describeBytesPerDocument()).startsWith("decode=").contains(", sign=").contains(", total=");
+    }
+
+    @Test
+    public void finish_should_publish_the_bytes_per_document_of_every_stage_per_client() {
+        // Given.
+        var registry = new SimpleMeterRegistry();
+        var accounting = new AllocationAccounting(true);
+        accounting.bindTo(registry);
+        for (int client = 0; client < 32; client++) {
+            accounting.start("client-" + client);
+        }
+        var allocations = accounting.start("one-too-many");
+        accounting.attach(1, allocations);
+
+        // When.
+        accounting.measure(1, AllocationStage.CANONICALIZE, () -> new byte[ARRAY_SIZE]);
+        accounting.finish(1, 2);
+
+        // Then.
+        var summary = registry
+                .get("signer.allocated.bytes.per.document")
+                .tag("stage", "canonicalize")
+                .tag("client", "other")
+                .summary();
+        then(summary.count()).isEqualTo(1);
+        then(summary.totalAmount()).isGreaterThanOrEqualTo(ARRAY_SIZE / 2.0);
+        then(registry.get("signer.allocated.bytes.per.document").summaries()).hasSize(AllocationStage.values().length);
+    }
+
+    @Test
+    public void measure_should_not_account_anything_when_disabled() {
+        // Given.
+        var accounting = new AllocationAccounting(false);
+        var allocations = accounting.start("billing");
+        accounting.attach(1, allocations);
+
+        // When.
+        accounting.measure(1, AllocationStage.SIGN, () -> new byte[ARRAY_SIZE]);
+        accounting.finish(1, 1);
+
+        // Then.
+        then(allocations.isEnabled()).isFalse();
+        then(allocations.getBytes(AllocationStage.SIGN)).isZero();
+    }
+}